@@ -1,13 +1,19 @@
 import gui.MainApplicationFrame;
+import gui.StartupProfiler;
+import logic.WindowsSaver;
 
 import java.beans.PropertyVetoException;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
 public class RobotsProgram {
     public static void main(String[] args) {
+        StartupProfiler profiler = StartupProfiler.getInstance();
+        // state.cfg читается, пока основной поток настраивает внешний вид
+        CompletableFuture<WindowsSaver.State> savedState = new WindowsSaver().loadAsync();
         try {
             UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
 //        UIManager.setLookAndFeel("javax.swing.plaf.metal.MetalLookAndFeel");
@@ -16,16 +22,19 @@ public class RobotsProgram {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        profiler.mark("lookAndFeel");
         SwingUtilities.invokeLater(() -> {
             MainApplicationFrame frame;
             try {
-                frame = new MainApplicationFrame();
+                profiler.mark("edtStart");
+                frame = new MainApplicationFrame(savedState);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             } catch (PropertyVetoException e) {
                 throw new RuntimeException(e);
             }
             frame.setVisible(true);
+            profiler.mark("show");
         });
     }
 }
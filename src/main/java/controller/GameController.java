@@ -1,41 +1,375 @@
 package controller;
 
 
+import log.LogLevel;
+import log.Logger;
+import model.DefaultControlLaw;
+import model.RobotControlLaw;
+import model.RobotFleet;
 import model.RobotModel;
+import model.TargetDispatcher;
 
+import java.util.Queue;
+import java.util.SplittableRandom;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Контроллер игры, который управляет обновлением состояния модели робота.
  * Использует таймер для периодического обновления положения робота.
+ * <p>
+ * Каждые {@value #TICK_MILLIS} мс реального времени таймер продвигает симуляцию на
+ * {@code TICK_MILLIS × масштаб времени} мс модельного времени шагами не длиннее {@value #TICK_MILLIS} мс,
+ * поэтому ускорение не меняет точность интегрирования. Если законы основного робота и парка —
+ * {@link DefaultControlLaw.Integrator#ADAPTIVE}, шаг удлиняется до {@value #ADAPTIVE_STEP_MILLIS} мс:
+ * на таком шаге адаптивный метод расходится с мелким шагом Эйлера меньше чем на пиксель.
+ * {@link DefaultControlLaw.Integrator#EXACT_ARC} держит направление поворота весь шаг и уже на 50 мс
+ * уводит робота на сотни пикселей, поэтому он шагает по {@value #TICK_MILLIS} мс.
+ * На один кадр таймера тратится не больше {@link #FRAME_BUDGET_PROPERTY} мс процессорного времени;
+ * не уложившийся остаток отбрасывается,
+ * и симуляция отстаёт от заданного масштаба, а не копит долг. В режиме максимальной скорости симуляция
+ * идёт без ограничений в отдельном потоке, а окна по-прежнему перерисовываются с частотой {@link gui.UiPulse}.
  */
 public class GameController {
+    /**
+     * Число роботов парка помимо основного робота; 0 — только основной робот.
+     */
+    public static final String FLEET_SIZE_PROPERTY = "robots.fleet.size";
+    /**
+     * Размеры поля, на котором расставляется парк.
+     */
+    public static final int FIELD_WIDTH = 1100;
+    public static final int FIELD_HEIGHT = 440;
+    /**
+     * Начальный масштаб времени.
+     */
+    public static final String TIME_SCALE_PROPERTY = "robots.time.scale";
+    /**
+     * Процессорное время на один кадр таймера, мс.
+     */
+    public static final String FRAME_BUDGET_PROPERTY = "robots.time.budget";
+    public static final double MIN_TIME_SCALE = 0.1;
+    public static final double MAX_TIME_SCALE = 1000;
+    private static final int TICK_MILLIS = 10;
+    // Самый длинный шаг адаптивного метода, на котором он совпадает с мелким шагом Эйлера
+    private static final int ADAPTIVE_STEP_MILLIS = 500;
+    // Шагов подряд в режиме максимальной скорости между выполнениями отложенных задач
+    private static final int MAX_SPEED_BATCH = 100;
+
     private final RobotModel model;
+    // Меняются только в потоке симуляции: в таймере или в потоке максимальной скорости, под stepLock
+    private final RobotFleet fleet;
+    private final TargetDispatcher dispatcher;
+    private final Queue<Runnable> betweenTicks = new ConcurrentLinkedQueue<>();
+    private final Object stepLock = new Object();
+    private final long frameBudgetNanos;
+    private volatile long tickCount;
+    private volatile double simulatedMillis;
+    private volatile double droppedMillis;
+    // Кадры симуляции: такт таймера или пачка шагов в режиме максимальной скорости
+    private volatile long frameCount;
+    private volatile long frameNanos;
+    private volatile long maxFrameNanos;
+    private volatile double timeScale;
+    private volatile boolean paused;
+    private volatile boolean maxSpeed;
+    // Поток максимальной скорости работает, пока его поколение текущее
+    private int maxSpeedGeneration;
 
     /**
      * Создает контроллер игры и запускает таймер для обновления состояния робота каждые.
      */
     public GameController(RobotModel model) {
         this.model = model;
-
+        int fleetSize = Math.max(0, Integer.getInteger(FLEET_SIZE_PROPERTY, 0));
+        this.fleet = new RobotFleet(fleetSize);
+        SplittableRandom random = new SplittableRandom(fleetSize);
+        for (int i = 0; i < fleetSize; i++) {
+            fleet.add(random.nextDouble() * FIELD_WIDTH, random.nextDouble() * FIELD_HEIGHT,
+                    random.nextDouble() * 2 * Math.PI);
+        }
+        this.dispatcher = new TargetDispatcher(fleet);
+        this.timeScale = initialTimeScale();
+        this.frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, Long.getLong(FRAME_BUDGET_PROPERTY, 8)));
 
         // Периодическое обновление
         Timer timer = new Timer("RobotUpdateTimer", true);
         timer.schedule(new TimerTask() {
             @Override
             public void run() {
-                model.update(10);
+                onTimerTick();
+            }
+        }, 0, TICK_MILLIS);
+    }
+
+    private void onTimerTick() {
+        if (maxSpeed) {
+            return;
+        }
+        synchronized (stepLock) {
+            runPendingTasks();
+            if (paused) {
+                return;
+            }
+            long start = System.nanoTime();
+            long deadline = start + frameBudgetNanos;
+            double remaining = TICK_MILLIS * timeScale;
+            double maxStep = maxStepMillis();
+            // при замедлении шаг короче кадра, при ускорении кадр делится на шаги по TICK_MILLIS
+            while (remaining > 1e-9) {
+                double dt = Math.min(maxStep, remaining);
+                step(dt);
+                remaining -= dt;
+                if (remaining > 1e-9 && System.nanoTime() >= deadline) {
+                    droppedMillis += remaining;
+                    break;
+                }
+            }
+            recordFrame(start);
+        }
+    }
+
+    /**
+     * Возвращает самый длинный шаг кадра таймера. Явный метод Эйлера и точные дуги верны только на коротком шаге;
+     * адаптивный метод сам делит длинный шаг на подшаги.
+     */
+    private double maxStepMillis() {
+        boolean adaptive = isAdaptive(model.getControlLaw())
+                && (fleet.size() == 0 || isAdaptive(fleet.getControlLaw()));
+        return adaptive ? ADAPTIVE_STEP_MILLIS : TICK_MILLIS;
+    }
+
+    private static boolean isAdaptive(RobotControlLaw law) {
+        return law instanceof DefaultControlLaw defaultLaw
+                && defaultLaw.getIntegrator() == DefaultControlLaw.Integrator.ADAPTIVE;
+    }
+
+    private void recordFrame(long start) {
+        long elapsed = System.nanoTime() - start;
+        frameCount++;
+        frameNanos += elapsed;
+        if (elapsed > maxFrameNanos) {
+            maxFrameNanos = elapsed;
+        }
+    }
+
+    private void step(double dt) {
+        model.update(dt);
+        if (fleet.size() > 0) {
+            fleet.step(dt);
+            dispatcher.onTick();
+        }
+        tickCount++;
+        simulatedMillis += dt;
+    }
+
+    private void runMaxSpeed(int generation) {
+        Logger.at(LogLevel.Info).log("Simulation running at maximum speed");
+        while (isCurrentMaxSpeed(generation)) {
+            synchronized (stepLock) {
+                runPendingTasks();
+                if (!paused) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < MAX_SPEED_BATCH && !paused && maxSpeed; i++) {
+                        step(TICK_MILLIS);
+                    }
+                    recordFrame(start);
+                }
+            }
+            if (paused) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+            }
+        }
+        Logger.at(LogLevel.Info).with("simulatedMillis", (long) simulatedMillis)
+                .log("Simulation back to timer");
+    }
+
+    private synchronized boolean isCurrentMaxSpeed(int generation) {
+        return maxSpeed && generation == maxSpeedGeneration;
+    }
+
+    /**
+     * Возвращает начальный масштаб времени из свойства {@value #TIME_SCALE_PROPERTY};
+     * при неверном значении пишет предупреждение и возвращает 1, чтобы приложение всё равно запустилось.
+     */
+    private static double initialTimeScale() {
+        String value = System.getProperty(TIME_SCALE_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return 1;
+        }
+        try {
+            return clampScale(Double.parseDouble(value.trim()));
+        } catch (IllegalArgumentException e) {
+            Logger.at(LogLevel.Warning).with("property", TIME_SCALE_PROPERTY).with("value", value)
+                    .log("Invalid time scale, using 1: {}", e.getMessage());
+            return 1;
+        }
+    }
+
+    private static double clampScale(double scale) {
+        if (Double.isNaN(scale)) {
+            throw new IllegalArgumentException("Time scale is not a number");
+        }
+        return Math.max(MIN_TIME_SCALE, Math.min(MAX_TIME_SCALE, scale));
+    }
+
+    /**
+     * Задаёт масштаб времени: сколько миллисекунд модельного времени проходит за миллисекунду реального.
+     * Значение приводится к диапазону [{@value #MIN_TIME_SCALE}, {@value #MAX_TIME_SCALE}].
+     * Вызывается из любого потока.
+     */
+    public void setTimeScale(double scale) {
+        timeScale = clampScale(scale);
+        Logger.at(LogLevel.Info).with("scale", timeScale).log("Time scale changed");
+    }
+
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Включает или выключает режим максимальной скорости: симуляция идёт без пауз в отдельном потоке,
+     * а масштаб времени и ограничение процессорного времени на кадр не действуют.
+     * Вызывается из любого потока.
+     */
+    public synchronized void setMaxSpeed(boolean enabled) {
+        if (enabled == maxSpeed) {
+            return;
+        }
+        maxSpeed = enabled;
+        if (enabled) {
+            int generation = ++maxSpeedGeneration;
+            Thread thread = new Thread(() -> runMaxSpeed(generation), "SimulationMaxSpeed");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public boolean isMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * Приостанавливает или возобновляет симуляцию. На паузе задачи {@link #runBetweenTicks} продолжают выполняться.
+     * Вызывается из любого потока.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        Logger.at(LogLevel.Info).with("paused", paused).log("Simulation pause changed");
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Возвращает модельное время с запуска, мс.
+     */
+    public double getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    /**
+     * Возвращает модельное время, отброшенное из-за превышения процессорного времени на кадр, мс.
+     */
+    public double getDroppedMillis() {
+        return droppedMillis;
+    }
+
+    /**
+     * Возвращает число кадров симуляции: тактов таймера или пачек шагов в режиме максимальной скорости.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Возвращает суммарное время кадров симуляции, нс.
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * Возвращает самую долгую длительность кадра симуляции, нс.
+     */
+    public long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+
+    /**
+     * Выполняет задачу в потоке симуляции перед ближайшим обновлением модели.
+     * Так подмена робота никогда не попадает в середину шага симуляции.
+     * Вызывается из любого потока.
+     */
+    public void runBetweenTicks(Runnable task) {
+        betweenTicks.add(task);
+    }
+
+    /**
+     * Возвращает число выполненных шагов симуляции.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = betweenTicks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // исключение не должно остановить таймер симуляции
+                Logger.at(LogLevel.Error).log("Task between ticks failed: {}", e.toString());
             }
-        }, 0, 10);
+        }
+    }
+
+    /**
+     * Возвращает парк роботов. Изменять его можно только в потоке симуляции, через {@link #runBetweenTicks}.
+     */
+    public RobotFleet getFleet() {
+        return fleet;
+    }
+
+    /**
+     * Возвращает раздатчик целей парка. Вызывать только в потоке симуляции, через {@link #runBetweenTicks}.
+     */
+    public TargetDispatcher getDispatcher() {
+        return dispatcher;
     }
 
     /**
      * Обрабатывает пользовательский клик по игровому полю.
-     * Устанавливает целевую позицию для робота.
+     * Без парка устанавливает целевую позицию основного робота; с парком цель получает
+     * ближайший свободный робот, в том числе основной.
      */
     public void onUserClick(int x, int y) {
-        model.setTargetPosition(x, y);
+        // цель меняется в потоке симуляции: он единственный производитель событий модели
+        runBetweenTicks(() -> {
+            if (fleet.size() == 0) {
+                model.setTargetPosition(x, y);
+            } else {
+                assignTarget(x, y);
+            }
+        });
+    }
+
+    private void assignTarget(double x, double y) {
+        int robot = dispatcher.nearestIdle(x, y);
+        double modelDistance = Math.hypot(model.getPositionX() - x, model.getPositionY() - y);
+        boolean modelIdle = Math.hypot(model.getTargetX() - model.getPositionX(),
+                model.getTargetY() - model.getPositionY()) < DefaultControlLaw.ARRIVAL_DISTANCE;
+        if (modelIdle && (robot < 0 || modelDistance <= Math.hypot(fleet.getX(robot) - x, fleet.getY(robot) - y))) {
+            model.setTargetPosition(x, y);
+        } else if (robot >= 0) {
+            fleet.setTarget(robot, x, y);
+        } else {
+            Logger.at(LogLevel.Debug).with("x", x).with("y", y).log("No idle robot for target");
+        }
     }
 }
 
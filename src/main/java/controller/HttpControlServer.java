@@ -0,0 +1,453 @@
+package controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import log.LogFloodGuard;
+import log.LogLevel;
+import log.LogWindowSource;
+import log.Logger;
+import logic.PluginMonitor;
+import model.RobotEvent;
+import model.RobotEventRing;
+import model.SimulationSnapshot;
+import model.TargetDispatcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Локальный HTTP-сервер метрик и управления симуляцией на {@link HttpServer} из JDK.
+ * <p>
+ * Слушает только адрес обратной петли и отвечает 403 на запросы с чужим заголовком {@code Host}
+ * или с заголовком {@code Origin}: так страница в браузере не достучится до сервера ни напрямую,
+ * ни через подмену DNS. Запросы обрабатываются в виртуальных потоках;
+ * метрики читаются из volatile-счётчиков, а изменения симуляции ставятся в очередь
+ * {@link GameController#runBetweenTicks(Runnable)}, поэтому сервер никогда не задерживает поток симуляции —
+ * ждёт результата только поток запроса, и не дольше {@value #TASK_TIMEOUT_SECONDS} с.
+ * <pre>
+ * GET  /metrics                  метрики в текстовом формате Prometheus
+ * POST /pause, /resume           пауза и продолжение симуляции
+ * POST /targets[?mode=auction]   раздача целей парку: в теле пары «x y», по паре на строку;
+ *                                в ответе номер робота для каждой цели или -1
+ * GET  /snapshot                 снимок симуляции в формате {@link SimulationSnapshot}
+ * GET  /events                   поток событий основного робота, пока клиент не отключится: по строке
+ *                                «номер тип x y направление цельX цельY» на событие, «lost n» — сколько
+ *                                событий клиент не успел прочитать, пустая строка — проверка связи
+ * </pre>
+ * Каждый клиент {@code /events} читает кольцо {@link RobotEventRing} своим курсором в своём виртуальном потоке,
+ * поэтому медленный клиент теряет события, но не задерживает симуляцию.
+ * Частоты (шагов в секунду, перерисовок, записей лога) считаются в Prometheus через {@code rate()}
+ * по счётчикам {@code *_total}.
+ */
+public class HttpControlServer implements AutoCloseable {
+    /**
+     * Порт сервера; без свойства сервер не запускается, 0 — любой свободный порт.
+     */
+    public static final String PORT_PROPERTY = "robots.http.port";
+
+    private static final long TASK_TIMEOUT_SECONDS = 5;
+    private static final int MAX_BODY_BYTES = 16 << 20;
+    private static final int EVENTS_BATCH = 1024;
+    private static final long EVENTS_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long EVENTS_HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final GameController controller;
+    private final PluginMonitor pluginMonitor;
+    private final RobotEventRing events;
+    private final Supplier<CompletableFuture<SimulationSnapshot>> snapshot;
+    private final Consumer<MetricsWriter> extraMetrics;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Запускает сервер на адресе обратной петли.
+     *
+     * @param port     порт; 0 — любой свободный
+     * @param events       кольцо событий основного робота для {@code /events}
+     * @param snapshot     поставщик снимка симуляции; будущее завершается, когда снимок снят
+     * @param extraMetrics дописывает в {@code /metrics} метрики вызывающего, например интерфейса;
+     *                     вызывается в потоке запроса
+     * @throws IOException если порт занят
+     */
+    public HttpControlServer(int port, GameController controller, PluginMonitor pluginMonitor, RobotEventRing events,
+                             Supplier<CompletableFuture<SimulationSnapshot>> snapshot,
+                             Consumer<MetricsWriter> extraMetrics) throws IOException {
+        this.controller = controller;
+        this.pluginMonitor = pluginMonitor;
+        this.events = events;
+        this.snapshot = snapshot;
+        this.extraMetrics = extraMetrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/metrics", exchange -> handle(exchange, "GET", this::metrics));
+        server.createContext("/pause", exchange -> handle(exchange, "POST", e -> pause(e, true)));
+        server.createContext("/resume", exchange -> handle(exchange, "POST", e -> pause(e, false)));
+        server.createContext("/targets", exchange -> handle(exchange, "POST", this::targets));
+        server.createContext("/snapshot", exchange -> handle(exchange, "GET", this::snapshot));
+        server.createContext("/events", exchange -> handle(exchange, "GET", this::events));
+        server.start();
+        Logger.at(LogLevel.Info).with("port", getPort()).log("HTTP control server started");
+    }
+
+    /**
+     * Возвращает порт, на котором слушает сервер.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    /**
+     * Ошибка запроса с HTTP-кодом ответа.
+     */
+    private static final class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        // обмен закрывается в finally, а не в try-with-resources: иначе ответ об ошибке уже не отправить
+        try {
+            if (!isLocalRequest(exchange)) {
+                send(exchange, 403, "Forbidden\n");
+                return;
+            }
+            if (!method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                send(exchange, 405, "Method not allowed\n");
+                return;
+            }
+            handler.handle(exchange);
+        } catch (RequestException e) {
+            send(exchange, e.status, e.getMessage() + "\n");
+        } catch (TimeoutException e) {
+            send(exchange, 503, "Simulation did not respond\n");
+        } catch (Exception e) {
+            Logger.at(LogLevel.Error).with("path", exchange.getRequestURI().getPath())
+                    .log("HTTP request failed: {}", e.toString());
+            send(exchange, 500, "Internal error\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Проверяет, что запрос пришёл не из браузера: {@code Host} называет обратную петлю с портом сервера,
+     * а {@code Origin}, который браузер ставит на запросы страниц, отсутствует.
+     */
+    private boolean isLocalRequest(HttpExchange exchange) {
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            return false;
+        }
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null) {
+            return false;
+        }
+        String port = ":" + getPort();
+        return host.equalsIgnoreCase("localhost" + port) || host.equals("127.0.0.1" + port)
+                || host.equals("[::1]" + port);
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8", text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void pause(HttpExchange exchange, boolean paused) throws IOException {
+        controller.setPaused(paused);
+        send(exchange, 200, paused ? "paused\n" : "running\n");
+    }
+
+    private void targets(HttpExchange exchange) throws Exception {
+        TargetDispatcher.Mode mode = parseMode(exchange.getRequestURI());
+        double[][] targets = parseTargets(readBody(exchange));
+        CompletableFuture<int[]> assigned = new CompletableFuture<>();
+        controller.runBetweenTicks(() -> {
+            try {
+                if (controller.getFleet().size() == 0) {
+                    assigned.complete(null);
+                } else {
+                    assigned.complete(controller.getDispatcher().dispatch(targets[0], targets[1], mode));
+                }
+            } catch (RuntimeException e) {
+                assigned.completeExceptionally(e);
+            }
+        });
+        int[] robots = await(assigned);
+        if (robots == null) {
+            throw new RequestException(409, "Fleet is empty; set " + GameController.FLEET_SIZE_PROPERTY);
+        }
+        StringBuilder text = new StringBuilder(robots.length * 6);
+        for (int robot : robots) {
+            text.append(robot).append('\n');
+        }
+        send(exchange, 200, text.toString());
+    }
+
+    private static TargetDispatcher.Mode parseMode(URI uri) throws RequestException {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return TargetDispatcher.Mode.GREEDY;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith("mode=")) {
+                try {
+                    return TargetDispatcher.Mode.valueOf(pair.substring(5).toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new RequestException(400, "Unknown mode: " + pair.substring(5));
+                }
+            }
+        }
+        return TargetDispatcher.Mode.GREEDY;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException, RequestException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new RequestException(413, "Body exceeds " + MAX_BODY_BYTES + " bytes");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Разбирает пары координат, разделённые пробелами, запятыми или переводами строк.
+     *
+     * @return массивы X и Y
+     */
+    private static double[][] parseTargets(String body) throws RequestException {
+        String trimmed = body.trim();
+        String[] tokens = trimmed.isEmpty() ? new String[0] : trimmed.split("[\\s,]+");
+        if (tokens.length == 0 || tokens.length % 2 != 0) {
+            throw new RequestException(400, "Expected pairs of coordinates");
+        }
+        double[] x = new double[tokens.length / 2];
+        double[] y = new double[tokens.length / 2];
+        try {
+            for (int i = 0; i < x.length; i++) {
+                x[i] = Double.parseDouble(tokens[2 * i]);
+                y[i] = Double.parseDouble(tokens[2 * i + 1]);
+                if (!Double.isFinite(x[i]) || !Double.isFinite(y[i])) {
+                    throw new NumberFormatException("not finite");
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "Bad coordinate: " + e.getMessage());
+        }
+        return new double[][]{x, y};
+    }
+
+    private void snapshot(HttpExchange exchange) throws Exception {
+        ByteBuffer encoded = await(snapshot.get()).encode();
+        send(exchange, 200, "application/octet-stream",
+                Arrays.copyOfRange(encoded.array(), encoded.position(), encoded.limit()));
+    }
+
+    /**
+     * Пересылает клиенту события робота по мере публикации. Отключение клиента завершает обмен без ошибки.
+     */
+    private void events(HttpExchange exchange) throws IOException {
+        RobotEventRing.Cursor cursor = events.newCursor();
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        StringBuilder text = new StringBuilder(EVENTS_BATCH * 64);
+        long reportedLost = 0;
+        long lastWrite = System.nanoTime();
+        try (OutputStream out = exchange.getResponseBody()) {
+            while (!Thread.currentThread().isInterrupted()) {
+                text.setLength(0);
+                int delivered = cursor.drain((event, endOfBatch) -> appendEvent(text, event), EVENTS_BATCH);
+                long lost = cursor.getLostCount();
+                if (lost != reportedLost) {
+                    text.append("lost ").append(lost).append('\n');
+                    reportedLost = lost;
+                }
+                long now = System.nanoTime();
+                if (text.isEmpty() && now - lastWrite >= EVENTS_HEARTBEAT_NANOS) {
+                    // без пустой строки отключение клиента на паузе заметно только со следующим событием
+                    text.append('\n');
+                }
+                if (!text.isEmpty()) {
+                    out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    lastWrite = now;
+                }
+                if (delivered < EVENTS_BATCH) {
+                    LockSupport.parkNanos(EVENTS_POLL_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            Logger.at(LogLevel.Debug).with("lost", cursor.getLostCount()).log("Event stream client disconnected");
+        }
+    }
+
+    private static void appendEvent(StringBuilder text, RobotEvent event) {
+        text.append(event.getSequence()).append(' ').append(event.getType())
+                .append(' ').append(event.getX()).append(' ').append(event.getY())
+                .append(' ').append(event.getDirection())
+                .append(' ').append(event.getTargetX()).append(' ').append(event.getTargetY()).append('\n');
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get(TASK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        MetricsWriter out = new MetricsWriter();
+        out.metric("robots_simulation_steps_total", "counter", "Simulation steps", controller.getTickCount());
+        out.metric("robots_simulation_time_seconds_total", "counter", "Simulated time",
+                controller.getSimulatedMillis() / 1000);
+        out.metric("robots_simulation_dropped_seconds_total", "counter",
+                "Simulated time dropped over the frame CPU budget", controller.getDroppedMillis() / 1000);
+        out.header("robots_simulation_frame_seconds", "summary", "Simulation frame duration");
+        out.sample("robots_simulation_frame_seconds_sum", "", controller.getFrameNanos() / 1e9);
+        out.sample("robots_simulation_frame_seconds_count", "", controller.getFrameCount());
+        out.metric("robots_simulation_frame_seconds_max", "gauge", "Longest simulation frame",
+                controller.getMaxFrameNanos() / 1e9);
+        out.metric("robots_simulation_time_scale", "gauge", "Simulated milliseconds per wall millisecond",
+                controller.isMaxSpeed() ? Double.POSITIVE_INFINITY : controller.getTimeScale());
+        out.metric("robots_simulation_paused", "gauge", "1 if the simulation is paused", controller.isPaused() ? 1 : 0);
+        out.metric("robots_fleet_robots", "gauge", "Robots in the fleet", controller.getFleet().size());
+
+        if (extraMetrics != null) {
+            extraMetrics.accept(out);
+        }
+
+        LogWindowSource log = Logger.getDefaultLogSource();
+        out.metric("robots_log_appended_total", "counter", "Log entries appended", log.appendedCount());
+        out.metric("robots_log_dropped_total", "counter", "Log entries evicted before reaching sinks",
+                log.droppedCount());
+        LogFloodGuard guard = log.getFloodGuard();
+        out.header("robots_log_suppressed_total", "counter", "Log entries suppressed by the flood guard");
+        out.sample("robots_log_suppressed_total", label("reason", "repeat"), guard != null ? guard.collapsedCount() : 0);
+        out.sample("robots_log_suppressed_total", label("reason", "rate"), guard != null ? guard.rateLimitedCount() : 0);
+
+        if (pluginMonitor != null) {
+            out.header("robots_plugin_call_seconds", "summary", "Plugin call duration");
+            for (PluginMonitor.CallStats stats : pluginMonitor.getStats()) {
+                String labels = label("plugin", stats.getPlugin()) + "," + label("call", stats.getCall());
+                out.sample("robots_plugin_call_seconds", labels + ",quantile=\"0.5\"", stats.percentileNanos(0.5) / 1e9);
+                out.sample("robots_plugin_call_seconds", labels + ",quantile=\"0.99\"", stats.percentileNanos(0.99) / 1e9);
+                out.sample("robots_plugin_call_seconds_sum", labels, stats.getTotalNanos() / 1e9);
+                out.sample("robots_plugin_call_seconds_count", labels, stats.getCount());
+            }
+            out.header("robots_plugin_call_seconds_max", "gauge", "Longest plugin call");
+            out.header("robots_plugin_violations_total", "counter", "Plugin calls over budget");
+            out.header("robots_plugin_demoted", "gauge", "1 if the plugin call fell back to the default");
+            for (PluginMonitor.CallStats stats : pluginMonitor.getStats()) {
+                String labels = label("plugin", stats.getPlugin()) + "," + label("call", stats.getCall());
+                out.sample("robots_plugin_call_seconds_max", labels, stats.getMaxNanos() / 1e9);
+                out.sample("robots_plugin_violations_total", labels, stats.getViolations());
+                out.sample("robots_plugin_demoted", labels, stats.isDemoted() ? 1 : 0);
+            }
+        }
+        send(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String label(String name, String value) {
+        return MetricsWriter.label(name, value);
+    }
+
+    /**
+     * Собирает ответ {@code /metrics} в текстовом формате Prometheus.
+     */
+    public static final class MetricsWriter {
+        private final StringBuilder out = new StringBuilder(4096);
+
+        private MetricsWriter() {
+        }
+
+        /**
+         * Пишет метрику без меток вместе с её описанием.
+         */
+        public void metric(String name, String type, String help, double value) {
+            header(name, type, help);
+            sample(name, "", value);
+        }
+
+        /**
+         * Пишет описание и тип метрики; значения с метками дописываются следом через {@link #sample}.
+         */
+        public void header(String name, String type, String help) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+
+        /**
+         * Пишет одно значение метрики.
+         *
+         * @param labels метки через запятую, собранные {@link #label}; пустая строка — без меток
+         */
+        public void sample(String name, String labels, double value) {
+            out.append(name);
+            if (!labels.isEmpty()) {
+                out.append('{').append(labels).append('}');
+            }
+            out.append(' ');
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                out.append((long) value);
+            } else if (Double.isInfinite(value)) {
+                out.append(value > 0 ? "+Inf" : "-Inf");
+            } else {
+                out.append(value);
+            }
+            out.append('\n');
+        }
+
+        /**
+         * Возвращает метку {@code name="value"} с экранированным значением.
+         */
+        public static String label(String name, String value) {
+            return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package gui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Стандартная отрисовка робота. Используется, когда внешний робот не загружен
+ * или его отрисовка отключена за превышение бюджета времени.
+ */
+public final class DefaultRobotGui implements ExternalRobotGui {
+    public static final DefaultRobotGui INSTANCE = new DefaultRobotGui();
+
+    private DefaultRobotGui() {
+    }
+
+    @Override
+    public void drawRobot(Graphics2D g, int x, int y, double direction) {
+        AffineTransform oldTransform = g.getTransform();
+        g.rotate(direction, x, y);
+        g.setColor(Color.MAGENTA);
+        g.fillOval(x - 15, y - 5, 30, 10);
+        g.setColor(Color.BLACK);
+        g.drawOval(x - 15, y - 5, 30, 10);
+        g.setColor(Color.WHITE);
+        g.fillOval(x + 5, y - 2, 5, 5);
+        g.setColor(Color.BLACK);
+        g.drawOval(x + 5, y - 2, 5, 5);
+        g.setTransform(oldTransform);
+    }
+}
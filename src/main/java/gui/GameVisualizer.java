@@ -1,25 +1,56 @@
 package gui;
 
 import controller.GameController;
+import model.RobotEvent;
+import model.RobotEventRing;
+import model.RobotFleet;
 import model.RobotModel;
 
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.AffineTransform;
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
  * Класс GameVisualizer отвечает за отрисовку игрового поля, включая
- * визуализацию робота и целевой точки. Обновление состояния модели робота
- * осуществляется посредством подписки на изменения модели.
+ * визуализацию робота и целевой точки. Каждый такт {@link UiPulse} поле читает пачку новых событий
+ * модели своим курсором {@link RobotEventRing.Cursor} и перерисовывается, только если они были.
+ * Рисуется состояние из последнего события, поэтому координаты, направление и цель всегда из одного шага.
+ * <p>
+ * Левый клик задаёт цель, правый выбирает ближайшего к курсору робота и сообщает о нём
+ * {@link RobotSelectionListener}; выбранный робот парка обводится кружком.
  */
-public class GameVisualizer extends JPanel implements PropertyChangeListener {
+public class GameVisualizer extends JPanel {
+    private static final int MAX_EVENTS_PER_PULSE = 4096;
+    // Дальше этого расстояния в пикселях от робота правый клик ничего не выбирает
+    private static final double SELECT_RADIUS = 10;
+
+    /**
+     * Получает робота, выбранного правым кликом на поле. Вызывается в EDT.
+     */
+    @FunctionalInterface
+    public interface RobotSelectionListener {
+        /**
+         * @param fleetIndex номер робота в парке или {@code -1} для основного робота
+         */
+        void robotSelected(int fleetIndex);
+    }
+
     private final GameController controller;
-    private final RobotModel model;
-    private ExternalRobotGui externalRobotGui;
+    private final RobotEventRing.Cursor events;
+    private final UiPulse.Handle repaintHandle;
+    // Подменяется в потоке таймера симуляции, читается при отрисовке
+    private volatile ExternalRobotGui externalRobotGui;
+    // Последнее прочитанное состояние робота. Используются только в EDT
+    private double robotX;
+    private double robotY;
+    private double robotDirection;
+    private double targetX;
+    private double targetY;
+    private RobotSelectionListener selectionListener;
+    // Номер выбранного робота парка или -1. Используется только в EDT
+    private int selectedFleetIndex = -1;
 
     /**
      * Устанавливает обновленный функционал из jar для робота.
@@ -28,20 +59,44 @@ public class GameVisualizer extends JPanel implements PropertyChangeListener {
         this.externalRobotGui = externalRobotGui;
     }
 
+    /**
+     * Возвращает контроллер, обновляющий модель робота.
+     */
+    public GameController getController() {
+        return controller;
+    }
+
+    /**
+     * Задаёт получателя выбора робота правым кликом; {@code null} отключает выбор.
+     */
+    public void setRobotSelectionListener(RobotSelectionListener listener) {
+        this.selectionListener = listener;
+    }
+
     /**
      * Создает визуализатор игры и добавляет обработчик кликов для установки целевой точки.
      */
     public GameVisualizer(RobotModel model) {
-        this.model = model;
+        this.events = model.getEvents().newCursor();
+        robotX = model.getPositionX();
+        robotY = model.getPositionY();
+        robotDirection = model.getDirection();
+        targetX = model.getTargetX();
+        targetY = model.getTargetY();
         this.controller = new GameController(model); // создаем контроллер тут
 
-        // Подписка на изменения модели
-        model.addPropertyChangeListener(this);
+        // чтение событий регистрируется раньше перерисовки, чтобы попасть с ней в один такт
+        UiPulse.getInstance().registerPeriodic("gameEvents", UiPulse.Priority.HIGH, 1, this::pollEvents);
+        repaintHandle = UiPulse.getInstance().register("gameField", UiPulse.Priority.HIGH, this::repaint);
 
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                controller.onUserClick(e.getX(), e.getY());
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    selectRobotAt(e.getX(), e.getY());
+                } else {
+                    controller.onUserClick(e.getX(), e.getY());
+                }
             }
         });
     }
@@ -54,31 +109,75 @@ public class GameVisualizer extends JPanel implements PropertyChangeListener {
     public void paint(Graphics g) {
         super.paint(g);
         Graphics2D g2d = (Graphics2D) g;
-        drawRobot(g2d, (int) model.getPositionX(), (int) model.getPositionY(), model.getDirection());
-        drawTarget(g2d, (int) model.getTargetX(), (int) model.getTargetY());
+        drawFleet(g2d);
+        drawRobot(g2d, (int) robotX, (int) robotY, robotDirection);
+        drawTarget(g2d, (int) targetX, (int) targetY);
+    }
+
+
+    /**
+     * Выбирает робота, ближайшего к точке клика, среди основного и роботов парка.
+     * Парк просматривается целиком без блокировок: клик редок, а промах на соседний шаг симуляции незаметен.
+     */
+    private void selectRobotAt(int x, int y) {
+        RobotSelectionListener listener = selectionListener;
+        if (listener == null) {
+            return;
+        }
+        double best = SELECT_RADIUS * SELECT_RADIUS;
+        int bestIndex = Integer.MIN_VALUE;
+        double mainDistance = distanceSquared(robotX, robotY, x, y);
+        if (mainDistance <= best) {
+            best = mainDistance;
+            bestIndex = -1;
+        }
+        RobotFleet fleet = controller.getFleet();
+        int size = fleet.size();
+        for (int i = 0; i < size; i++) {
+            double distance = distanceSquared(fleet.getX(i), fleet.getY(i), x, y);
+            if (distance < best) {
+                best = distance;
+                bestIndex = i;
+            }
+        }
+        if (bestIndex == Integer.MIN_VALUE) {
+            return;
+        }
+        selectedFleetIndex = bestIndex;
+        repaintHandle.markDirty();
+        listener.robotSelected(bestIndex);
     }
 
+    private static double distanceSquared(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Отрисовывает роботов парка точками: занятые синим, свободные серым.
+     * Парк читается без блокировок, поэтому кадр может смешать соседние шаги симуляции.
+     */
+    private void drawFleet(Graphics2D g) {
+        RobotFleet fleet = controller.getFleet();
+        int size = fleet.size();
+        for (int i = 0; i < size; i++) {
+            g.setColor(fleet.isIdle(i) ? Color.GRAY : Color.BLUE);
+            g.fillRect((int) fleet.getX(i) - 1, (int) fleet.getY(i) - 1, 3, 3);
+        }
+        int selected = selectedFleetIndex;
+        if (selected >= 0 && selected < size) {
+            g.setColor(Color.RED);
+            g.drawOval((int) fleet.getX(selected) - 4, (int) fleet.getY(selected) - 4, 8, 8);
+        }
+    }
 
     /**
      * Отрисовывает робота в заданной позиции и направлении.
      */
     private void drawRobot(Graphics2D g, int x, int y, double direction) {
-        if (externalRobotGui != null) {
-            externalRobotGui.drawRobot(g, x, y, direction);
-        } else {
-            // Стандартная отрисовка
-            AffineTransform oldTransform = g.getTransform();
-            g.rotate(direction, x, y);
-            g.setColor(Color.MAGENTA);
-            g.fillOval(x - 15, y - 5, 30, 10);
-            g.setColor(Color.BLACK);
-            g.drawOval(x - 15, y - 5, 30, 10);
-            g.setColor(Color.WHITE);
-            g.fillOval(x + 5, y - 2, 5, 5);
-            g.setColor(Color.BLACK);
-            g.drawOval(x + 5, y - 2, 5, 5);
-            g.setTransform(oldTransform);
-        }
+        ExternalRobotGui externalRobotGui = this.externalRobotGui;
+        (externalRobotGui != null ? externalRobotGui : DefaultRobotGui.INSTANCE).drawRobot(g, x, y, direction);
     }
 
     /**
@@ -92,11 +191,26 @@ public class GameVisualizer extends JPanel implements PropertyChangeListener {
     }
 
     /**
-     * Обрабатывает событие изменения свойств модели робота.
-     * При возникновении события перерисовывает игровое поле.
+     * Читает новые события модели и отмечает поле для перерисовки, если они были.
+     * Парк не шлёт событий, поэтому поле с парком перерисовывается каждый такт.
      */
-    @Override
-    public void propertyChange(PropertyChangeEvent evt) {
-        repaint();
+    private void pollEvents() {
+        if (events.drain(this::onEvent, MAX_EVENTS_PER_PULSE) > 0 || controller.getFleet().size() > 0) {
+            repaintHandle.markDirty();
+        }
+    }
+
+    /**
+     * Запоминает состояние робота из события; отрисовке нужно только последнее в пачке.
+     */
+    private void onEvent(RobotEvent event, boolean endOfBatch) {
+        if (!endOfBatch) {
+            return;
+        }
+        robotX = event.getX();
+        robotY = event.getY();
+        robotDirection = event.getDirection();
+        targetX = event.getTargetX();
+        targetY = event.getTargetY();
     }
 }
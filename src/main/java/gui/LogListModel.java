@@ -0,0 +1,148 @@
+package gui;
+
+import javax.swing.AbstractListModel;
+
+import log.LogEntry;
+import log.LogWindowSource;
+
+/**
+ * Виртуальная модель списка для окна протокола.
+ * Не копирует лог целиком: JList запрашивает только видимые строки,
+ * а модель подгружает их из {@link LogWindowSource#history(long, int)} небольшими блоками.
+ * Строка списка соответствует порядковому номеру записи, поэтому прокрутка вверх
+ * уходит в историю на диске за пределы буфера в памяти. Записи раскладываются по строкам
+ * по их номерам: запись, которой нет ни в памяти, ни на диске, остаётся пустой строкой
+ * и не сдвигает соседние.
+ * В режиме фильтра модель показывает только записи с номерами из результатов поиска.
+ * Все методы вызываются в потоке диспетчеризации событий.
+ */
+class LogListModel extends AbstractListModel<LogEntry> {
+    /**
+     * Размер блока строк, запрашиваемого у источника за одно обращение.
+     */
+    private static final int BLOCK_SIZE = 64;
+
+    private final LogWindowSource logSource;
+    private long firstSequence;
+    private int size;
+    private static final LogEntry[] NO_ROWS = new LogEntry[0];
+
+    private int blockStart = 0;
+    private LogEntry[] block = NO_ROWS;
+    private long[] filter;
+
+    LogListModel(LogWindowSource logSource) {
+        this.logSource = logSource;
+        this.firstSequence = logSource.firstSequence();
+        this.size = countRows(firstSequence);
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public LogEntry getElementAt(int index) {
+        if (index < blockStart || index >= blockStart + block.length) {
+            loadBlock(index - index % BLOCK_SIZE);
+        }
+        int offset = index - blockStart;
+        return offset >= 0 && offset < block.length ? block[offset] : null;
+    }
+
+    /**
+     * Сверяет модель с источником и сообщает списку только об изменившихся строках.
+     * Новые строки добавляются интервалом, а при вытеснении старых записей
+     * достаточно перерисовать видимую часть списка.
+     */
+    void refresh() {
+        int oldSize = size;
+        firstSequence = logSource.firstSequence();
+        int newSize = filter != null ? filter.length : countRows(firstSequence);
+        block = NO_ROWS;
+        size = newSize;
+        if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        } else if (newSize < oldSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        }
+        int unchanged = Math.min(oldSize, newSize);
+        if (unchanged > 0) {
+            fireContentsChanged(this, 0, unchanged - 1);
+        }
+    }
+
+    /**
+     * Ограничивает список записями с заданными номерами.
+     *
+     * @param sequences номера записей по возрастанию или {@code null}, чтобы показывать весь лог
+     */
+    void setFilter(long[] sequences) {
+        filter = sequences;
+        refresh();
+    }
+
+    /**
+     * Дополняет фильтр номерами новых найденных записей, оставляя не больше {@code limit} самых новых.
+     * Номера, не превосходящие уже показанные, пропускаются, поэтому результаты поиска
+     * по пересекающимся диапазонам можно передавать как есть.
+     *
+     * @param sequences номера записей по возрастанию
+     */
+    void extendFilter(long[] sequences, int limit) {
+        if (filter == null) {
+            return;
+        }
+        long last = filter.length > 0 ? filter[filter.length - 1] : -1;
+        int start = 0;
+        while (start < sequences.length && sequences[start] <= last) {
+            start++;
+        }
+        if (start == sequences.length) {
+            return;
+        }
+        int added = sequences.length - start;
+        int kept = Math.max(0, Math.min(filter.length, limit - added));
+        long[] extended = new long[kept + Math.min(added, limit)];
+        System.arraycopy(filter, filter.length - kept, extended, 0, kept);
+        System.arraycopy(sequences, sequences.length - (extended.length - kept), extended, kept, extended.length - kept);
+        filter = extended;
+        refresh();
+    }
+
+    boolean isFiltered() {
+        return filter != null;
+    }
+
+    private int countRows(long fromSequence) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, logSource.appendedCount() - fromSequence));
+    }
+
+    private void loadBlock(int from) {
+        blockStart = from;
+        if (filter == null) {
+            long blockSequence = firstSequence + from;
+            LogEntry[] rows = new LogEntry[Math.min(BLOCK_SIZE, size - from)];
+            for (LogEntry entry : logSource.history(blockSequence, rows.length)) {
+                long row = entry.getSequence() - blockSequence;
+                if (row >= 0 && row < rows.length) {
+                    rows[(int) row] = entry;
+                }
+            }
+            block = rows;
+            return;
+        }
+        LogEntry[] rows = new LogEntry[Math.min(BLOCK_SIZE, filter.length - from)];
+        int row = 0;
+        for (LogEntry entry : logSource.history(filter, from, rows.length)) {
+            while (row < rows.length && filter[from + row] < entry.getSequence()) {
+                row++;
+            }
+            if (row < rows.length && filter[from + row] == entry.getSequence()) {
+                rows[row++] = entry;
+            }
+        }
+        block = rows;
+    }
+}
@@ -1,14 +1,26 @@
 package gui;
 
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.EnumSet;
+import java.util.Set;
 
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JComboBox;
 import javax.swing.JInternalFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
 
 import log.LogChangeListener;
 import log.LogEntry;
+import log.LogLevel;
 import log.LogWindowSource;
 import logic.LocalizationManager;
 
@@ -19,11 +31,33 @@ import logic.LocalizationManager;
  */
 public class LogWindow extends JInternalFrame implements LogChangeListener, PropertyChangeListener {
     private final LogWindowSource m_logSource;
-    private final TextArea m_logContent;
+    private final LogListModel m_logModel;
+    private final JList<LogEntry> m_logContent;
+    private final JScrollPane m_scrollPane;
+    private final JLabel m_searchLabel;
+    private final JTextField m_searchField;
+    private final JComboBox<Object> m_levelFilter;
+    /**
+     * Максимальное число результатов поиска, показываемых в окне.
+     */
+    private static final int SEARCH_LIMIT = 10_000;
+    /**
+     * Запрос и уровни последнего поиска и номер, до которого лог уже просмотрен поиском:
+     * при обновлении окна ищутся только записи, появившиеся после него.
+     */
+    private String m_query = "";
+    private Set<LogLevel> m_queryLevels = EnumSet.allOf(LogLevel.class);
+    private long m_searchedUpTo;
+    /**
+     * Пока при смене локали переподписывается пункт «все уровни», выбор в фильтре не запускает поиск.
+     */
+    private boolean m_relabelling;
     /**
      * Массив, содержащий данные о положении, размере и состоянии окна.
      */
     private int[] logData;
+    private final UiPulse.Handle updateHandle =
+            UiPulse.getInstance().register("logWindow", UiPulse.Priority.LOW, this::updateLogContent);
 
     /**
      * Устанавливает данные для окна протокола.
@@ -60,46 +94,140 @@ public class LogWindow extends JInternalFrame implements LogChangeListener, Prop
 
         m_logSource = logSource;
         m_logSource.registerListener(this);
-        m_logContent = new TextArea("");
-        m_logContent.setSize(440, 440);
-
+        m_logModel = new LogListModel(m_logSource);
+        m_logContent = new JList<>(m_logModel);
+        // Фиксированные размеры ячеек избавляют JList от обхода всех строк при раскладке
+        m_logContent.setFixedCellHeight(m_logContent.getFontMetrics(m_logContent.getFont()).getHeight() + 2);
+        m_logContent.setFixedCellWidth(400);
+        m_logContent.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                String text = value instanceof LogEntry entry ? entry.format() : "";
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        m_scrollPane = new JScrollPane(m_logContent);
+        m_scrollPane.setPreferredSize(new Dimension(440, 440));
+
+        m_searchLabel = new JLabel(LocalizationManager.getInstance().getString("log.search"));
+        m_searchField = new JTextField(16);
+        m_searchField.addActionListener(e -> runSearch());
+        m_levelFilter = new JComboBox<>();
+        m_levelFilter.addItem(LocalizationManager.getInstance().getString("log.level.all"));
+        for (LogLevel level : LogLevel.values()) {
+            m_levelFilter.addItem(level);
+        }
+        m_levelFilter.addActionListener(e -> {
+            if (!m_relabelling) {
+                runSearch();
+            }
+        });
+        JPanel searchPanel = new JPanel(new BorderLayout(4, 0));
+        searchPanel.add(m_searchLabel, BorderLayout.WEST);
+        searchPanel.add(m_searchField, BorderLayout.CENTER);
+        searchPanel.add(m_levelFilter, BorderLayout.EAST);
 
         JPanel panel = new JPanel(new BorderLayout());
-        panel.add(m_logContent, BorderLayout.CENTER);
+        panel.add(searchPanel, BorderLayout.NORTH);
+        panel.add(m_scrollPane, BorderLayout.CENTER);
         getContentPane().add(panel);
         pack();
+        // пока окно скрыто, лог не перечитывается; при показе список догоняет лог
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                updateLogContent();
+            }
+        });
         updateLogContent();
     }
 
     /**
      * Обновляет содержимое лог-окна.
-     * Формирует строку из всех лог-записей и устанавливает её в компонент m_logContent.
+     * Модель сообщает списку только о новых строках, а перерисовываются лишь видимые.
+     * Если пользователь смотрел на конец лога, список продолжает следовать за ним.
+     * В режиме поиска результаты дополняются только совпадениями среди новых записей.
      */
     private void updateLogContent() {
-        StringBuilder content = new StringBuilder();
-        for (LogEntry entry : m_logSource.all()) {
-            if (entry != null) {
-                content.append(entry.getMessage()).append("\n");
-            }
+        if (!isVisible()) {
+            return;
+        }
+        boolean followTail = isScrolledToTail();
+        if (m_logModel.isFiltered()) {
+            long searchFrom = m_searchedUpTo;
+            m_searchedUpTo = m_logSource.indexedCount();
+            m_logModel.extendFilter(m_logSource.search(m_query, m_queryLevels, searchFrom, SEARCH_LIMIT), SEARCH_LIMIT);
+        } else {
+            m_logModel.refresh();
+        }
+        int size = m_logModel.getSize();
+        if (followTail && size > 0) {
+            m_logContent.ensureIndexIsVisible(size - 1);
         }
-        m_logContent.setText(content.toString());
-        m_logContent.invalidate();
+    }
+
+    /**
+     * Выполняет поиск по индексу источника. Пустой запрос, пропускающий все уровни,
+     * возвращает окно к показу всего лога.
+     */
+    private void runSearch() {
+        String text = m_searchField.getText().trim();
+        if (text.isEmpty() && selectedLevels().size() == LogLevel.values().length) {
+            m_logModel.setFilter(null);
+        } else {
+            m_query = text;
+            m_queryLevels = selectedLevels();
+            m_searchedUpTo = m_logSource.indexedCount();
+            m_logModel.setFilter(m_logSource.search(m_query, m_queryLevels, SEARCH_LIMIT));
+        }
+        int size = m_logModel.getSize();
+        if (size > 0) {
+            m_logContent.ensureIndexIsVisible(size - 1);
+        }
+    }
+
+    /**
+     * Возвращает уровни не ниже выбранного в фильтре.
+     */
+    private Set<LogLevel> selectedLevels() {
+        Set<LogLevel> levels = EnumSet.allOf(LogLevel.class);
+        if (m_levelFilter.getSelectedItem() instanceof LogLevel minLevel) {
+            levels.removeIf(level -> level.level() < minLevel.level());
+        }
+        return levels;
+    }
+
+    private boolean isScrolledToTail() {
+        JScrollBar bar = m_scrollPane.getVerticalScrollBar();
+        return bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - m_logContent.getFixedCellHeight();
     }
 
     /**
      * Обработчик изменения логов.
-     * Вызывает обновление содержимого лог-окна в потоке диспетчеризации событий.
+     * Отмечает лог-окно для обновления в ближайшем такте {@link UiPulse}: сколько бы записей ни пришло
+     * за кадр, окно перечитывает лог один раз.
      */
     @Override
     public void onLogChanged() {
-        EventQueue.invokeLater(this::updateLogContent);
+        updateHandle.markDirty();
     }
 
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
         if ("locale".equals(evt.getPropertyName())) {
             // Обновляем заголовок окна
-            setTitle(LocalizationManager.getInstance().getString("game.title"));
+            setTitle(LocalizationManager.getInstance().getString("log.title"));
+            m_searchLabel.setText(LocalizationManager.getInstance().getString("log.search"));
+            int selected = m_levelFilter.getSelectedIndex();
+            m_relabelling = true;
+            try {
+                m_levelFilter.removeItemAt(0);
+                m_levelFilter.insertItemAt(LocalizationManager.getInstance().getString("log.level.all"), 0);
+                m_levelFilter.setSelectedIndex(selected);
+            } finally {
+                m_relabelling = false;
+            }
         }
     }
 }
@@ -6,13 +6,32 @@ import java.awt.event.*;
 import java.beans.PropertyVetoException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import log.LogLevel;
 import log.Logger;
+import logic.PluginDescriptor;
+import logic.PluginMonitor;
+import logic.PluginScanner;
+import logic.PluginWatcher;
 import logic.RobotLoader;
+import logic.SnapshotSaver;
 import model.ExternalRobotModel;
 import logic.LocalizationManager;
+import model.RobotFleet;
 import model.RobotModel;
+import model.SimulationSnapshot;
+import controller.GameController;
+import controller.HttpControlServer;
 import logic.WindowsSaver;
 
 /**
@@ -22,54 +41,102 @@ import logic.WindowsSaver;
  * и сохранение состояния окон, создание меню и обработку выхода из приложения.
  */
 public class MainApplicationFrame extends JFrame {
+    /**
+     * Каталог JAR-файлов роботов, перезагружаемых на лету; пустое значение отключает наблюдение.
+     */
+    public static final String PLUGINS_DIRECTORY_PROPERTY = "robots.plugins.dir";
+    /**
+     * Файл снимка симуляции; пустое значение отключает сохранение и восстановление.
+     */
+    public static final String SNAPSHOT_FILE_PROPERTY = "robots.snapshot.file";
+    /**
+     * Период автосохранения снимка в секундах; 0 отключает автосохранение.
+     */
+    public static final String AUTOSAVE_PROPERTY = "robots.autosave.seconds";
+
+    // Языки меню «Язык»; их таблицы сообщений грузятся заранее
+    private static final List<Locale> LANGUAGES =
+            List.of(Locale.of("ru"), Locale.of("en"), Locale.of("zh"), Locale.of("hex"));
+
     private final JDesktopPane desktopPane = new JDesktopPane();
     private final WindowsSaver windowsSaver = new WindowsSaver();
     // Общий экземпляр модели робота, который используется в RobotInfoWindow и в GameWindow (через GameVisualizer)
     private final RobotModel sharedRobotModel = new RobotModel();
     private final RobotLoader robotLoader = new RobotLoader();
+    // JAR-файл текущего внешнего робота; его загрузчик закрывается при загрузке другого файла.
+    // Меняется только в потоке таймера симуляции
+    private File externalRobotJar;
+    private String externalRobotName;
+    // JAR-файл, на который ссылается снимок симуляции (исходный, а не теневая копия).
+    // Меняется в потоке таймера симуляции, читается и наблюдателем каталога плагинов
+    private volatile File externalRobotSource;
+    private volatile SnapshotSaver snapshotSaver;
+    private volatile HttpControlServer httpServer;
+    // Создаются в фоне при запуске
+    private volatile PluginWatcher pluginWatcher;
+    // Роботы из каталога плагинов; null, пока идёт просмотр. Используются только в EDT
+    private List<PluginDescriptor> scannedPlugins;
+    private JMenu pluginsMenu;
+    private final PluginMonitor pluginMonitor = PluginMonitor.fromSystemProperties();
     private final GameWindow gameWindow;
-    private final LogWindow logWindow = createLogWindow();
-    private final RobotInfoWindow robotInfoWindow;
+    // Окна протокола и информации о роботе создаются при первом показе; до этого null. Используются только в EDT
+    private LogWindow logWindow;
+    private RobotInfoWindow robotInfoWindow;
+    // Состояние окон, прочитанное при запуске; по нему создаются отложенные окна и сохраняются несозданные
+    private final WindowsSaver.State savedState;
+    private boolean firstFramePainted;
 
     /**
-     * Конструктор главного окна приложения. Он устанавливает размеры окна, создает и размещает
-     * на рабочем столе окна игрового поля, протокола и окна с информацией о роботе, а также загружает
-     * их сохраненные состояния.
-     * Генерирует исключение PropertyVetoException, если установка свернутости окна не разрешена,
-     * или IOException, если возникает ошибка при загрузке состояния.
+     * Конструктор главного окна приложения. Читает сохранённое состояние окон сам.
+     *
+     * @see #MainApplicationFrame(CompletableFuture)
      */
     public MainApplicationFrame() throws IOException, PropertyVetoException {
+        this(new WindowsSaver().loadAsync());
+    }
+
+    /**
+     * Конструктор главного окна приложения. До первого кадра создаются только игровое поле и меню;
+     * окна протокола и информации о роботе создаются сразу после первого кадра, если они были открыты
+     * или свёрнуты, а закрытые — при первом показе из меню «Окна». Просмотр плагинов, наблюдение
+     * за каталогом плагинов и восстановление снимка симуляции идут в фоне.
+     * Генерирует исключение PropertyVetoException, если установка свернутости окна не разрешена.
+     *
+     * @param savedState состояние окон, читаемое в фоне; конструктор дожидается его перед раскладкой окон
+     */
+    public MainApplicationFrame(CompletableFuture<WindowsSaver.State> savedState)
+            throws IOException, PropertyVetoException {
+        StartupProfiler profiler = StartupProfiler.getInstance();
         int inset = 50;
         Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
         setBounds(inset, inset, screenSize.width - inset * 2, screenSize.height - inset * 2);
-
         setContentPane(desktopPane);
-        gameWindow = new GameWindow(sharedRobotModel);
-        robotInfoWindow = new RobotInfoWindow(sharedRobotModel);
+        startPluginScan();
+        profiler.mark("frame");
 
-        // Загружаем состояния окон, включая MainApplicationFrame
-        windowsSaver.loadFromFile(this, gameWindow, logWindow, robotInfoWindow);
+        this.savedState = savedState.join();
+        windowsSaver.applyTo(this, this.savedState);
+        profiler.mark("configWait");
 
-        addWindow(logWindow);
-        addWindow(gameWindow);
-        addWindow(robotInfoWindow);
+        gameWindow = new GameWindow(sharedRobotModel);
+        windowsSaver.applyTo(gameWindow, this.savedState.gameWindow());
+        gameWindow.setGameData(this.savedState.gameWindow());
+        gameWindow.getVisualizer().setRobotSelectionListener(this::onRobotSelected);
+        if (this.savedState.gameWindow()[4] != WindowsSaver.CLOSED) {
+            addWindow(gameWindow);
+            gameWindow.setIcon(this.savedState.gameWindow()[4] == WindowsSaver.ICONIFIED);
+        }
+        startBackgroundServices();
+        profiler.mark("gameWindow");
 
-        SwingUtilities.invokeLater(() -> {
-            try {
-                gameWindow.setIcon(gameWindow.getGameData()[4] == 0);
-                logWindow.setIcon(logWindow.getLogData()[4] == 0);
-                robotInfoWindow.setIcon(robotInfoWindow.getWindowData()[4] == 0);
-            } catch (PropertyVetoException e) {
-                e.printStackTrace();
+        setJMenuBar(generateMenuBar());
+        LocalizationManager.getInstance().addPropertyChangeListener(evt -> {
+            if ("locale".equals(evt.getPropertyName())) {
+                onLocaleChanged();
             }
         });
-
-
-        setJMenuBar(generateMenuBar());
         setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
         addExitButton();
-
-
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
@@ -80,6 +147,89 @@ public class MainApplicationFrame extends JFrame {
                 }
             }
         });
+        profiler.mark("menus");
+    }
+
+    /**
+     * Отмечает первый кадр в {@link StartupProfiler} и откладывает создание остальных окон на после него.
+     */
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!firstFramePainted) {
+            firstFramePainted = true;
+            StartupProfiler.getInstance().firstFrame();
+            SwingUtilities.invokeLater(this::createDeferredWindows);
+        }
+    }
+
+    /**
+     * Создаёт окна, которые были открыты или свёрнуты при прошлом выходе.
+     */
+    private void createDeferredWindows() {
+        long start = System.nanoTime();
+        if (savedState.logWindow()[4] != WindowsSaver.CLOSED) {
+            showLogWindow(savedState.logWindow()[4] == WindowsSaver.ICONIFIED);
+        }
+        if (savedState.infoWindow()[4] != WindowsSaver.CLOSED) {
+            showRobotInfoWindow(savedState.infoWindow()[4] == WindowsSaver.ICONIFIED);
+        }
+        StartupProfiler.getInstance().record("deferredWindows", start);
+    }
+
+    /**
+     * Показывает окно протокола, создавая его при первом обращении.
+     *
+     * @param iconified показать окно свёрнутым
+     */
+    private void showLogWindow(boolean iconified) {
+        if (logWindow == null) {
+            logWindow = createLogWindow();
+            logWindow.setLogData(savedState.logWindow());
+            windowsSaver.applyTo(logWindow, savedState.logWindow());
+        }
+        showWindow(logWindow, iconified);
+    }
+
+    /**
+     * Показывает окно информации о роботе, создавая его при первом обращении.
+     *
+     * @param iconified показать окно свёрнутым
+     */
+    private void showRobotInfoWindow(boolean iconified) {
+        if (robotInfoWindow == null) {
+            robotInfoWindow = new RobotInfoWindow(sharedRobotModel);
+            robotInfoWindow.setRobotInfoData(savedState.infoWindow());
+            windowsSaver.applyTo(robotInfoWindow, savedState.infoWindow());
+        }
+        showWindow(robotInfoWindow, iconified);
+    }
+
+    /**
+     * Показывает в окне информации робота, выбранного на поле, открывая окно при необходимости.
+     *
+     * @param fleetIndex номер робота в парке или {@code -1} для основного робота
+     */
+    private void onRobotSelected(int fleetIndex) {
+        showRobotInfoWindow(false);
+        if (fleetIndex < 0) {
+            robotInfoWindow.select(sharedRobotModel);
+        } else {
+            robotInfoWindow.select(gameWindow.getVisualizer().getController().getFleet(), fleetIndex);
+        }
+    }
+
+    private void showWindow(JInternalFrame frame, boolean iconified) {
+        if (frame.getParent() == null && frame.getDesktopIcon().getParent() == null) {
+            addWindow(frame);
+        }
+        frame.setVisible(true);
+        try {
+            frame.setIcon(iconified);
+        } catch (PropertyVetoException e) {
+            Logger.at(LogLevel.Debug).with("window", frame.getTitle()).log("Window state change vetoed");
+        }
+        frame.toFront();
     }
 
     /**
@@ -90,7 +240,7 @@ public class MainApplicationFrame extends JFrame {
         LogWindow logWindow = new LogWindow(Logger.getDefaultLogSource());
         logWindow.setLocation(10, 10);
         logWindow.pack();
-        Logger.debug(LocalizationManager.getInstance().getString("create.log.window"));
+        Logger.debug(() -> LocalizationManager.getInstance().getString("create.log.window"));
         return logWindow;
     }
 
@@ -98,6 +248,8 @@ public class MainApplicationFrame extends JFrame {
      * Добавляет переданное окно на рабочий стол приложения и делает его видимым.
      */
     protected void addWindow(JInternalFrame frame) {
+        // закрытое окно прячется, чтобы его можно было снова открыть из меню «Окна»
+        frame.setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
         desktopPane.add(frame);
         frame.setVisible(true);
     }
@@ -115,9 +267,93 @@ public class MainApplicationFrame extends JFrame {
         loadRobotItem.addActionListener(e -> loadExternalRobot());
         robotMenu.add(loadRobotItem);
 
+        pluginsMenu = new JMenu(LocalizationManager.getInstance().getString("menu.robot.plugins"));
+        fillPluginsMenu();
+        robotMenu.add(pluginsMenu);
+
         return robotMenu;
     }
 
+    /**
+     * Заполняет подменю роботов из каталога плагинов по результатам просмотра.
+     * Пока просмотр не закончен, в подменю показывается неактивный пункт.
+     */
+    private void fillPluginsMenu() {
+        pluginsMenu.removeAll();
+        if (scannedPlugins == null || scannedPlugins.isEmpty()) {
+            JMenuItem placeholder = new JMenuItem(LocalizationManager.getInstance().getString(
+                    scannedPlugins == null ? "menu.robot.plugins.scanning" : "menu.robot.plugins.empty"));
+            placeholder.setEnabled(false);
+            pluginsMenu.add(placeholder);
+            return;
+        }
+        for (PluginDescriptor descriptor : scannedPlugins) {
+            JMenuItem item = new JMenuItem(descriptor.toString());
+            item.addActionListener(e -> loadPluginRobot(descriptor));
+            pluginsMenu.add(item);
+        }
+    }
+
+    /**
+     * Запускает просмотр каталога плагинов в фоне; по его окончании подменю роботов заполняется в EDT.
+     */
+    private void startPluginScan() {
+        String directory = pluginsDirectory();
+        if (directory == null) {
+            scannedPlugins = Collections.emptyList();
+            return;
+        }
+        new PluginScanner().scan(Path.of(directory)).thenAccept(plugins -> SwingUtilities.invokeLater(() -> {
+            scannedPlugins = plugins;
+            if (pluginsMenu != null) {
+                fillPluginsMenu();
+            }
+        }));
+    }
+
+    /**
+     * Загружает робота из каталога плагинов: классы загружаются и робот создаётся только сейчас.
+     * Классы берутся из теневой копии JAR-файла, поэтому исходный файл можно заменить новой сборкой.
+     */
+    private void loadPluginRobot(PluginDescriptor descriptor) {
+        File jarFile = descriptor.jarFile();
+        File loadedFile = jarFile;
+        try {
+            loadedFile = shadowCopy(jarFile);
+            PluginDescriptor loaded = new PluginDescriptor(loadedFile, descriptor.name(), descriptor.version(),
+                    descriptor.modelClasses(), descriptor.guiClasses());
+            ExternalRobotModel robotModel = robotLoader.loadRobotModel(loaded);
+            ExternalRobotGui robotGui = robotLoader.loadRobotGui(loaded);
+
+            installExternalRobot(jarFile, loadedFile, robotModel, robotGui);
+        } catch (Exception ex) {
+            discardCopy(jarFile, loadedFile);
+            Logger.at(LogLevel.Error)
+                    .with("jar", jarFile.getName())
+                    .log("Failed to load external robot: {}", ex.getMessage());
+            showErrorMessage();
+        }
+        repaint();
+    }
+
+    /**
+     * Возвращает теневую копию JAR-файла плагина или сам файл, если наблюдение за каталогом плагинов не запущено.
+     */
+    private File shadowCopy(File jarFile) throws IOException {
+        PluginWatcher watcher = pluginWatcher;
+        return watcher != null ? watcher.createShadowCopy(jarFile) : jarFile;
+    }
+
+    /**
+     * Освобождает теневую копию, из которой не удалось загрузить робота.
+     */
+    private void discardCopy(File jarFile, File loadedFile) {
+        PluginWatcher watcher = pluginWatcher;
+        if (watcher != null && !loadedFile.equals(jarFile)) {
+            watcher.discard(loadedFile);
+        }
+    }
+
     /**
      * Загружает внешнюю реализацию робота из JAR-файла
      */
@@ -126,29 +362,283 @@ public class MainApplicationFrame extends JFrame {
                 LocalizationManager.getInstance().getString("menu.robot.load.dialog"));
 
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            File jarFile = fileChooser.getSelectedFile();
             try {
-                File jarFile = fileChooser.getSelectedFile();
-                ExternalRobotModel robotModel = robotLoader.loadRobotFromJarModel(jarFile, "logic.CustomRobot");
-                ExternalRobotGui robotGui = robotLoader.loadRobotFromJarGui(jarFile, "logic.CustomRobot");
+                ExternalRobotModel robotModel = robotLoader.loadRobotFromJarModel(jarFile);
+                ExternalRobotGui robotGui = robotLoader.loadRobotFromJarGui(jarFile);
 
-                sharedRobotModel.setExternalRobot(robotModel);
-                gameWindow.getVisualizer().setExternalRobot(robotGui);
+                installExternalRobot(jarFile, jarFile, robotModel, robotGui);
 
-                showSuccessMessage();
+                showSuccessMessage(jarFile.getName());
             } catch (Exception ex) {
-                Logger.error("Failed to load external robot: " + ex.getMessage());
+                Logger.at(LogLevel.Error)
+                        .with("jar", jarFile.getName())
+                        .log("Failed to load external robot: {}", ex.getMessage());
                 showErrorMessage();
             }
         }
         repaint();
     }
 
+    /**
+     * Подменяет внешнего робота между шагами симуляции и освобождает JAR-файл предыдущего.
+     * Вызовы кода робота замеряются {@link PluginMonitor} и при превышении бюджета заменяются стандартными.
+     *
+     * @param pluginFile JAR-файл, по имени которого ведётся статистика плагина
+     * @param loadedFile JAR-файл, из которого загружены классы
+     */
+    private void installExternalRobot(File pluginFile, File loadedFile,
+                                      ExternalRobotModel robotModel, ExternalRobotGui robotGui) {
+        installExternalRobot(pluginFile, loadedFile, robotModel, robotGui, false);
+    }
+
+    /**
+     * @param onlyIfCurrent подменить робота, только если он по-прежнему загружен из {@code pluginFile};
+     *                      иначе теневая копия освобождается
+     */
+    private void installExternalRobot(File pluginFile, File loadedFile,
+                                      ExternalRobotModel robotModel, ExternalRobotGui robotGui, boolean onlyIfCurrent) {
+        String pluginName = pluginFile.getName();
+        ExternalRobotModel monitoredModel = pluginMonitor.monitor(pluginName, robotModel);
+        ExternalRobotGui monitoredGui = pluginMonitor.monitor(pluginName, robotGui);
+        gameWindow.getVisualizer().getController().runBetweenTicks(() -> {
+            if (onlyIfCurrent && !isExternalRobotSource(pluginFile)) {
+                // пока JAR-файл загружался, был выбран другой робот
+                if (!pluginName.equals(externalRobotName)) {
+                    pluginMonitor.forget(pluginName);
+                }
+                discardCopy(pluginFile, loadedFile);
+                return;
+            }
+            sharedRobotModel.setExternalRobot(monitoredModel);
+            gameWindow.getVisualizer().getController().getFleet().setControlLaw(monitoredModel.getControlLaw());
+            gameWindow.getVisualizer().setExternalRobot(monitoredGui);
+            File previous = externalRobotJar;
+            String previousName = externalRobotName;
+            externalRobotJar = loadedFile;
+            externalRobotName = pluginName;
+            externalRobotSource = pluginFile;
+            if (previousName != null && !previousName.equals(pluginName)) {
+                pluginMonitor.forget(previousName);
+            }
+            if (previous != null && !previous.equals(loadedFile)) {
+                if (pluginWatcher != null) {
+                    pluginWatcher.discard(previous);
+                } else {
+                    robotLoader.unload(previous);
+                }
+            }
+        });
+    }
+
+    /**
+     * Проверяет, загружен ли текущий внешний робот из этого JAR-файла.
+     */
+    private boolean isExternalRobotSource(File jarFile) {
+        File source = externalRobotSource;
+        return source != null
+                && source.getAbsoluteFile().toPath().normalize().equals(jarFile.getAbsoluteFile().toPath().normalize());
+    }
+
+    /**
+     * Запускает в фоне наблюдение за каталогом плагинов, восстановление снимка симуляции и HTTP-сервер:
+     * они обращаются к диску и сети и загружают классы плагинов, поэтому не задерживают первый кадр.
+     * Каждая служба запускается отдельно, и сбой одной не отменяет остальные.
+     */
+    private void startBackgroundServices() {
+        GameController controller = gameWindow.getVisualizer().getController();
+        for (Locale locale : LANGUAGES) {
+            LocalizationManager.getInstance().preload(locale);
+        }
+        long start = System.nanoTime();
+        // снимок восстанавливается после запуска наблюдателя: робот из снимка грузится из теневой копии
+        CompletableFuture<Void> plugins = runService("pluginWatcher", this::startPluginWatcher);
+        CompletableFuture<Void> snapshots =
+                plugins.thenCompose(ignored -> runService("snapshots", () -> startSnapshots(controller)));
+        CompletableFuture<Void> http = runService("httpServer", () -> startHttpServer(controller));
+        CompletableFuture.allOf(plugins, snapshots, http)
+                .whenComplete((ignored, error) -> StartupProfiler.getInstance().record("backgroundServices", start));
+    }
+
+    /**
+     * Запускает фоновую службу отдельно от остальных: её сбой записывается в лог и не мешает другим службам.
+     *
+     * @return будущее, которое завершается обычным образом и при сбое службы
+     */
+    private static CompletableFuture<Void> runService(String name, Runnable service) {
+        return CompletableFuture.runAsync(service).exceptionally(error -> {
+            Logger.at(LogLevel.Error).with("service", name)
+                    .log("Background service failed to start: {}", error.toString());
+            return null;
+        });
+    }
+
+    /**
+     * Восстанавливает симуляцию из последнего снимка и запускает автосохранение.
+     * Снимок снимается между шагами симуляции, а пишется в фоне.
+     */
+    private void startSnapshots(GameController controller) {
+        String file = System.getProperty(SNAPSHOT_FILE_PROPERTY, "simulation.snap").trim();
+        if (file.isEmpty()) {
+            return;
+        }
+        snapshotSaver = new SnapshotSaver(Path.of(file), () -> captureSnapshot(controller));
+        restoreSimulation(controller);
+        long period = Long.getLong(AUTOSAVE_PROPERTY, 60);
+        if (period > 0) {
+            snapshotSaver.startAutosave(period);
+        }
+    }
+
+    /**
+     * Снимает снимок симуляции между шагами.
+     *
+     * @return будущее, завершающееся снимком
+     */
+    private CompletableFuture<SimulationSnapshot> captureSnapshot(GameController controller) {
+        CompletableFuture<SimulationSnapshot> result = new CompletableFuture<>();
+        controller.runBetweenTicks(() -> {
+            // первым идёт основной робот, за ним роботы парка
+            RobotFleet fleet = controller.getFleet();
+            List<SimulationSnapshot.Robot> robots = new ArrayList<>(fleet.size() + 1);
+            robots.add(sharedRobotModel.captureState());
+            for (int i = 0; i < fleet.size(); i++) {
+                robots.add(fleet.captureState(i));
+            }
+            result.complete(new SimulationSnapshot(System.currentTimeMillis(), controller.getTickCount(),
+                    externalRobotSource != null ? externalRobotSource.getAbsolutePath() : null, robots));
+        });
+        return result;
+    }
+
+    /**
+     * Запускает локальный HTTP-сервер метрик и управления, если задан порт {@value HttpControlServer#PORT_PROPERTY}.
+     */
+    private void startHttpServer(GameController controller) {
+        String port = System.getProperty(HttpControlServer.PORT_PROPERTY, "").trim();
+        if (port.isEmpty()) {
+            return;
+        }
+        try {
+            httpServer = new HttpControlServer(Integer.parseInt(port), controller, pluginMonitor,
+                    sharedRobotModel.getEvents(), () -> captureSnapshot(controller),
+                    MainApplicationFrame::writeUiMetrics);
+        } catch (IOException | IllegalArgumentException e) {
+            Logger.at(LogLevel.Warning).with("port", port).log("HTTP control server not started: {}", e.toString());
+        }
+    }
+
+    /**
+     * Дописывает в ответ {@code /metrics} счётчики {@link UiPulse}.
+     */
+    private static void writeUiMetrics(HttpControlServer.MetricsWriter out) {
+        UiPulse pulse = UiPulse.getInstance();
+        out.metric("robots_ui_pulses_total", "counter", "UI pulses", pulse.getPulseCount());
+        out.metric("robots_ui_deferred_updates_total", "counter", "UI updates deferred over budget",
+                pulse.getDeferredCount());
+        out.metric("robots_ui_pulse_seconds_max", "gauge", "Longest UI pulse", pulse.getMaxPulseNanos() / 1e9);
+        out.header("robots_ui_updates_total", "counter", "UI updates run, by update (gameField is the repaint)");
+        for (UiPulse.Handle handle : pulse.getHandles()) {
+            out.sample("robots_ui_updates_total", HttpControlServer.MetricsWriter.label("update", handle.getName()),
+                    handle.getRunCount());
+        }
+    }
+
+    private void restoreSimulation(GameController controller) {
+        Optional<SimulationSnapshot> loaded;
+        try {
+            loaded = snapshotSaver.load();
+        } catch (IOException e) {
+            Logger.at(LogLevel.Warning).with("file", snapshotSaver.getFile().getFileName())
+                    .log("Failed to restore simulation: {}", e.getMessage());
+            return;
+        }
+        if (loaded.isEmpty()) {
+            return;
+        }
+        SimulationSnapshot snapshot = loaded.get();
+        if (!snapshot.getRobots().isEmpty()) {
+            controller.runBetweenTicks(() -> {
+                List<SimulationSnapshot.Robot> robots = snapshot.getRobots();
+                sharedRobotModel.restoreState(robots.get(0));
+                RobotFleet fleet = controller.getFleet();
+                // парк мог стать меньше или больше с прошлого запуска; лишние записи пропускаются
+                for (int i = 1; i < robots.size() && i <= fleet.size(); i++) {
+                    fleet.restoreState(i - 1, robots.get(i));
+                }
+                // цели, раздаваемые в этой же пачке задач, не должны искать по прежним позициям
+                controller.getDispatcher().invalidate();
+            });
+        }
+        if (snapshot.getPluginPath() != null) {
+            File jarFile = new File(snapshot.getPluginPath());
+            // загрузка классов робота не задерживает появление окна
+            CompletableFuture.runAsync(() -> {
+                File loadedFile = jarFile;
+                try {
+                    loadedFile = shadowCopy(jarFile);
+                    installExternalRobot(jarFile, loadedFile,
+                            robotLoader.loadRobotFromJarModel(loadedFile), robotLoader.loadRobotFromJarGui(loadedFile));
+                } catch (Exception ex) {
+                    discardCopy(jarFile, loadedFile);
+                    Logger.at(LogLevel.Warning).with("jar", jarFile.getName())
+                            .log("Failed to restore external robot: {}", ex.getMessage());
+                }
+            });
+        }
+        Logger.at(LogLevel.Info).with("tick", snapshot.getTick()).with("robots", snapshot.getRobots().size())
+                .log("Simulation restored");
+    }
+
+    /**
+     * Возвращает каталог плагинов или {@code null}, если он отключён.
+     */
+    private static String pluginsDirectory() {
+        String directory = System.getProperty(PLUGINS_DIRECTORY_PROPERTY, "plugins").trim();
+        return directory.isEmpty() ? null : directory;
+    }
+
+    /**
+     * Запускает наблюдение за каталогом плагинов: изменённый JAR-файл текущего робота
+     * загружается заново и подменяет его без остановки симуляции. Новые и другие изменённые JAR-файлы
+     * только появляются в подменю роботов из каталога плагинов, а их теневые копии освобождаются.
+     */
+    private void startPluginWatcher() {
+        String directory = pluginsDirectory();
+        if (directory == null) {
+            return;
+        }
+        try {
+            pluginWatcher = new PluginWatcher(Path.of(directory), robotLoader, new PluginWatcher.Listener() {
+                @Override
+                public void onPluginReloaded(File jarFile, File loadedFile,
+                                             ExternalRobotModel robotModel, ExternalRobotGui robotGui) {
+                    if (isExternalRobotSource(jarFile)) {
+                        installExternalRobot(jarFile, loadedFile, robotModel, robotGui, true);
+                    } else {
+                        discardCopy(jarFile, loadedFile);
+                    }
+                }
+
+                @Override
+                public void onPluginFileChanged(File jarFile) {
+                    // новый или пересобранный JAR-файл сразу появляется в подменю роботов
+                    startPluginScan();
+                }
+            });
+        } catch (IOException e) {
+            Logger.at(LogLevel.Warning).with("dir", directory).log("Plugin hot reload is disabled: {}", e.getMessage());
+        }
+    }
+
     /**
      * Показывает сообщение об успешной загрузке робота
+     *
+     * @param robotName имя загруженного JAR-файла
      */
-    private void showSuccessMessage() {
+    private void showSuccessMessage(String robotName) {
         JOptionPane.showMessageDialog(this,
-                LocalizationManager.getInstance().getString("menu.robot.load.success"),
+                LocalizationManager.getInstance().format("menu.robot.load.success", robotName),
                 LocalizationManager.getInstance().getString("menu.robot.load.title"),
                 JOptionPane.INFORMATION_MESSAGE);
     }
@@ -172,6 +662,8 @@ public class MainApplicationFrame extends JFrame {
         menuBar.add(createLookAndFeelMenu());
         menuBar.add(createTestMenu());
         menuBar.add(createRobotMenu()); // Добавляем новое меню
+        menuBar.add(createSimulationMenu());
+        menuBar.add(createWindowsMenu());
         menuBar.add(createLanguageChangeMenu());
         JMenu fileMenu = new JMenu(LocalizationManager.getInstance().getString("menu.file"));
         JMenuItem exitItem = new JMenuItem(LocalizationManager.getInstance().getString("menu.exit"));
@@ -246,19 +738,72 @@ public class MainApplicationFrame extends JFrame {
         JMenuItem addLogMessageItem = new JMenuItem(LocalizationManager.
                 getInstance().getString("button1.log"), KeyEvent.VK_S);
         addLogMessageItem.addActionListener((event) ->
-                Logger.debug(LocalizationManager.getInstance().getString("button1.log.print")));
+                Logger.debug(() -> LocalizationManager.getInstance().getString("button1.log.print")));
 
         // Вторая кнопка: добавляет другое сообщение
         JMenuItem addLogErrorItem = new JMenuItem(LocalizationManager.
                 getInstance().getString("button2.log"), KeyEvent.VK_P);
         addLogErrorItem.addActionListener((event) ->
-                Logger.debug(LocalizationManager.getInstance().getString("button2.log.print")));
+                Logger.debug(() -> LocalizationManager.getInstance().getString("button2.log.print")));
 
         testMenu.add(addLogMessageItem);
         testMenu.add(addLogErrorItem);
         return testMenu;
     }
 
+    /**
+     * Создает меню «Симуляция»: масштаб времени, режим максимальной скорости и пауза.
+     * Пункты показывают текущее состояние контроллера, так как меню пересоздаётся при смене языка.
+     */
+    private JMenu createSimulationMenu() {
+        GameController controller = gameWindow.getVisualizer().getController();
+        JMenu simulationMenu = new JMenu(LocalizationManager.getInstance().getString("menu.simulation"));
+
+        JMenu speedMenu = new JMenu(LocalizationManager.getInstance().getString("menu.simulation.speed"));
+        ButtonGroup speedGroup = new ButtonGroup();
+        for (double scale : new double[]{0.1, 0.5, 1, 2, 10, 100, 1000}) {
+            String label = (scale == Math.rint(scale) ? String.valueOf((long) scale) : String.valueOf(scale)) + "×";
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(label, controller.getTimeScale() == scale);
+            item.addActionListener(e -> controller.setTimeScale(scale));
+            speedGroup.add(item);
+            speedMenu.add(item);
+        }
+
+        JCheckBoxMenuItem maxSpeedItem = new JCheckBoxMenuItem(
+                LocalizationManager.getInstance().getString("menu.simulation.maxspeed"), controller.isMaxSpeed());
+        maxSpeedItem.addActionListener(e -> controller.setMaxSpeed(maxSpeedItem.isSelected()));
+
+        JCheckBoxMenuItem pauseItem = new JCheckBoxMenuItem(
+                LocalizationManager.getInstance().getString("menu.simulation.pause"), controller.isPaused());
+        pauseItem.addActionListener(e -> controller.setPaused(pauseItem.isSelected()));
+
+        simulationMenu.add(speedMenu);
+        simulationMenu.add(maxSpeedItem);
+        simulationMenu.add(pauseItem);
+        return simulationMenu;
+    }
+
+    /**
+     * Создает меню «Окна», которое открывает закрытые окна и создаёт ещё не созданные.
+     */
+    private JMenu createWindowsMenu() {
+        JMenu windowsMenu = new JMenu(LocalizationManager.getInstance().getString("menu.windows"));
+
+        JMenuItem gameItem = new JMenuItem(LocalizationManager.getInstance().getString("game.title"));
+        gameItem.addActionListener(e -> showWindow(gameWindow, false));
+
+        JMenuItem logItem = new JMenuItem(LocalizationManager.getInstance().getString("log.title"));
+        logItem.addActionListener(e -> showLogWindow(false));
+
+        JMenuItem infoItem = new JMenuItem(LocalizationManager.getInstance().getString("menu.robot"));
+        infoItem.addActionListener(e -> showRobotInfoWindow(false));
+
+        windowsMenu.add(gameItem);
+        windowsMenu.add(logItem);
+        windowsMenu.add(infoItem);
+        return windowsMenu;
+    }
+
     /**
      * Создает меню с выбором локализации
      */
@@ -286,11 +831,18 @@ public class MainApplicationFrame extends JFrame {
     }
 
     /**
-     * Метод для смены языка
+     * Метод для смены языка. Таблица сообщений грузится в фоне, а надписи обновляются
+     * в {@link #onLocaleChanged()} вместе с остальными окнами.
      */
     private void switchLanguage(Locale locale) {
         LocalizationManager.getInstance().setLocale(locale);
+    }
 
+    /**
+     * Обновляет надписи главного окна после смены локали. Вызывается в EDT тем же проходом,
+     * что и остальные слушатели локали.
+     */
+    private void onLocaleChanged() {
         // Обновление локализованных надписей стандартных кнопок
         UIManager.put("OptionPane.yesButtonText", LocalizationManager.getInstance().getString("yes"));
         UIManager.put("OptionPane.noButtonText", LocalizationManager.getInstance().getString("no"));
@@ -301,7 +853,6 @@ public class MainApplicationFrame extends JFrame {
         repaint();
     }
 
-
     /**
      * Добавляет кнопку выхода, которая располагается в нижней части главного окна.
      * При нажатии на кнопку вызывается процедура подтверждения выхода из приложения.
@@ -333,12 +884,32 @@ public class MainApplicationFrame extends JFrame {
                 JOptionPane.YES_NO_OPTION
         );
         if (confirmed == JOptionPane.YES_OPTION) {
-            windowsSaver.saveToFile(this, gameWindow, logWindow, robotInfoWindow);
+            windowsSaver.saveToFile(this, gameWindow, logWindow, robotInfoWindow, savedState);
+            saveSimulation();
+            if (httpServer != null) {
+                httpServer.close();
+            }
             dispose();
             System.exit(0);
         }
     }
 
+    /**
+     * Сохраняет снимок симуляции перед выходом, ожидая окончания записи не дольше нескольких секунд.
+     */
+    private void saveSimulation() {
+        if (snapshotSaver == null) {
+            return;
+        }
+        try {
+            snapshotSaver.saveAsync().get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            Logger.at(LogLevel.Warning).log("Failed to save simulation: {}", e.toString());
+        }
+    }
+
     /**
      * Устанавливает внешний вид приложения, обновляя интерфейс всех компонентов.
      * При возникновении ошибки смены темы ошибка игнорируется.
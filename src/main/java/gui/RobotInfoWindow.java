@@ -1,41 +1,115 @@
 package gui;
 
 import logic.LocalizationManager;
+import model.RobotEvent;
+import model.RobotEventRing;
+import model.RobotFleet;
 import model.RobotModel;
 
 import javax.swing.*;
 import java.awt.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.text.DecimalFormatSymbols;
 
 /**
  * Класс RobotInfoWindow представляет окно с информацией о роботе.
- * Окно наследуется от JInternalFrame и отображает текущие координаты и направление робота.
+ * Окно наследуется от JInternalFrame и отображает текущие координаты выбранного робота.
  * Данные окна (координаты, размеры и состояние) хранятся в массиве windowData.
- * Окно подписывается на изменения модели робота и обновляет отображаемую информацию при их возникновении.
+ * <p>
+ * Окно не получает уведомлений от модели: периодическое обновление {@link UiPulse} с частотой {@value #RATE_PROPERTY}
+ * (по умолчанию {@value #DEFAULT_RATE} раз в секунду) читает последнее состояние выбранного робота —
+ * у модели это последнее событие из её кольца {@link RobotEventRing}, прочитанное своим курсором, —
+ * и обновляет метку, только если показываемое значение изменилось. Локализованный префикс
+ * и десятичный разделитель кешируются до смены локали, а текст собирается в переиспользуемом буфере.
+ * Роботом может быть отдельная модель или робот парка, выбранный через {@link #select(RobotFleet, int)} —
+ * например, правым кликом по полю {@link GameVisualizer}.
  */
 public class RobotInfoWindow extends JInternalFrame implements PropertyChangeListener {
+    /**
+     * Частота обновления окна, раз в секунду.
+     */
+    public static final String RATE_PROPERTY = "robots.info.rate";
+    private static final int DEFAULT_RATE = 10;
+
     private JLabel positionLabel;
-    private final RobotModel robotModel;
+    // Выбранный робот: либо модель, либо робот парка по индексу. Используются только в EDT
+    private RobotModel robotModel;
+    private RobotEventRing.Cursor modelEvents;
+    private double modelX;
+    private double modelY;
+    private RobotFleet fleet;
+    private int fleetIndex = -1;
+
+    private final UiPulse.Handle sampler;
+    private final StringBuilder text = new StringBuilder(64);
+    private String prefix;
+    private char decimalSeparator;
+    // Показанные значения в сотых долях; метка обновляется только при их изменении
+    private long shownX = Long.MIN_VALUE;
+    private long shownY = Long.MIN_VALUE;
 
     private int[] windowData = new int[]{100, 100, 300, 100, 1};
 
     /**
      * Конструктор окна информации о роботе. Создает окно с заголовком "Информация о роботе",
      * устанавливает необходимые флаги (возможность перемещения, закрытия, изменения размера и сворачивания),
-     * сохраняет переданную модель робота и подписывается на ее изменения. Затем инициализирует пользовательский интерфейс,
+     * выбирает переданную модель робота и запускает опрос её состояния. Затем инициализирует пользовательский интерфейс,
      * упаковывает окно и делает его видимым.
      */
     public RobotInfoWindow(RobotModel model) {
         super(LocalizationManager.getInstance().getString("menu.robot"), true, true, true, true);
-        this.robotModel = model;
-        robotModel.addPropertyChangeListener(this);
+        follow(model);
         // Подписываемся на смену локали
         LocalizationManager.getInstance().addPropertyChangeListener(this);
+        updatePattern();
 
         initUI();
         pack();
         setVisible(true);
+
+        int rate = Math.max(1, Integer.getInteger(RATE_PROPERTY, DEFAULT_RATE));
+        sampler = UiPulse.getInstance().registerPeriodic("robotInfo", UiPulse.Priority.LOW, 1000 / rate, this::sample);
+    }
+
+    /**
+     * Показывает в окне отдельную модель робота.
+     */
+    public void select(RobotModel model) {
+        follow(model);
+        fleet = null;
+        fleetIndex = -1;
+        forceUpdate();
+    }
+
+    /**
+     * Показывает в окне робота из парка. Окно читает только его элемент массивов парка.
+     *
+     * @param index номер робота в парке
+     */
+    public void select(RobotFleet fleet, int index) {
+        this.fleet = fleet;
+        this.fleetIndex = index;
+        robotModel = null;
+        modelEvents = null;
+        forceUpdate();
+    }
+
+    /**
+     * Начинает читать события модели с текущего момента; до первого события показываются её текущие координаты.
+     */
+    private void follow(RobotModel model) {
+        robotModel = model;
+        modelEvents = model.getEvents().newCursor();
+        modelX = model.getPositionX();
+        modelY = model.getPositionY();
+    }
+
+    private void onEvent(RobotEvent event, boolean endOfBatch) {
+        if (endOfBatch) {
+            modelX = event.getX();
+            modelY = event.getY();
+        }
     }
 
     /**
@@ -45,23 +119,91 @@ public class RobotInfoWindow extends JInternalFrame implements PropertyChangeLis
     private void initUI() {
         setLayout(new GridLayout(2, 1));
         positionLabel = new JLabel();
-        updateLabels();
+        sample();
         add(positionLabel);
     }
 
     /**
-     * Обновляет текст меток, отображающих позицию и направление робота.
-     * Используется форматирование с двумя знаками после запятой.
+     * Читает состояние выбранного робота и обновляет метку, если округлённые координаты изменились.
+     * Пока окно не показывается на экране, ничего не делает.
      */
-    private void updateLabels() {
-        positionLabel.setText(String.format(LocalizationManager.getInstance().getString("robot.info")
-                        + ": (%.2f, %.2f)",
-                robotModel.getPositionX(), robotModel.getPositionY()));
+    private void sample() {
+        if (positionLabel == null || (!isShowing() && shownX != Long.MIN_VALUE)) {
+            return;
+        }
+        double x;
+        double y;
+        if (fleet != null) {
+            if (fleetIndex < 0 || fleetIndex >= fleet.size()) {
+                return;
+            }
+            x = fleet.getX(fleetIndex);
+            y = fleet.getY(fleetIndex);
+        } else if (robotModel != null) {
+            // курсор отстаёт не больше чем на одно кольцо: пропущенное не нужно, важна последняя позиция
+            modelEvents.drain(this::onEvent, Integer.MAX_VALUE);
+            x = modelX;
+            y = modelY;
+        } else {
+            return;
+        }
+        long hundredthsX = Math.round(x * 100);
+        long hundredthsY = Math.round(y * 100);
+        if (hundredthsX == shownX && hundredthsY == shownY) {
+            return;
+        }
+        shownX = hundredthsX;
+        shownY = hundredthsY;
+        text.setLength(0);
+        if (fleet != null) {
+            text.append('#').append(fleetIndex).append(' ');
+        }
+        text.append(prefix);
+        appendFixed(text, x, decimalSeparator);
+        text.append(", ");
+        appendFixed(text, y, decimalSeparator);
+        text.append(')');
+        positionLabel.setText(text.toString());
+    }
+
+    private void forceUpdate() {
+        shownX = Long.MIN_VALUE;
+        shownY = Long.MIN_VALUE;
+        sample();
     }
 
     /**
-     * Обрабатывает событие изменения свойств модели робота.
-     * При возникновении события обновляет отображаемые данные в окне.
+     * Кеширует локализованный префикс метки и десятичный разделитель текущей локали.
+     */
+    private void updatePattern() {
+        LocalizationManager localization = LocalizationManager.getInstance();
+        prefix = localization.getString("robot.info") + ": (";
+        decimalSeparator = DecimalFormatSymbols.getInstance(localization.getCurrentLocale()).getDecimalSeparator();
+    }
+
+    /**
+     * Дописывает число с двумя знаками после разделителя без {@link String#format}.
+     * Нечисловые и очень большие значения дописываются как есть.
+     */
+    static void appendFixed(StringBuilder out, double value, char decimalSeparator) {
+        if (!Double.isFinite(value) || Math.abs(value) >= 1e15) {
+            out.append(value);
+            return;
+        }
+        long hundredths = Math.round(Math.abs(value) * 100);
+        if (value < 0 && hundredths != 0) {
+            out.append('-');
+        }
+        out.append(hundredths / 100).append(decimalSeparator);
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    /**
+     * Обрабатывает смену локали: обновляет заголовок и кешированный шаблон метки.
      */
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
@@ -69,10 +211,8 @@ public class RobotInfoWindow extends JInternalFrame implements PropertyChangeLis
             // Обновляем заголовок окна
             setTitle(LocalizationManager.getInstance().getString("menu.robot"));
 
-            updateLabels();
-        }
-        if ("position".equals(evt.getPropertyName())) {
-            SwingUtilities.invokeLater(this::updateLabels);
+            updatePattern();
+            forceUpdate();
         }
     }
 
@@ -0,0 +1,109 @@
+package gui;
+
+import log.LogEventBuilder;
+import log.LogLevel;
+import log.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замер этапов запуска приложения до первого кадра главного окна.
+ * <p>
+ * Последовательные этапы отмечаются {@link #mark(String)}: этап длится от предыдущей отметки до этой.
+ * Фоновые задачи запуска (чтение конфигурации, просмотр плагинов) отмечаются {@link #record(String, long)}
+ * со своим моментом начала и на последовательные отметки не влияют.
+ * {@link #firstFrame()} записывает в лог сводку этапов и время до первого кадра;
+ * если оно больше бюджета из свойства {@value #BUDGET_PROPERTY} (мс, по умолчанию 1000),
+ * сводка пишется как предупреждение.
+ */
+public final class StartupProfiler {
+    /**
+     * Бюджет времени до первого кадра, мс.
+     */
+    public static final String BUDGET_PROPERTY = "robots.startup.budget";
+
+    private static final StartupProfiler INSTANCE = new StartupProfiler();
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private long lastMarkNanos = startNanos;
+    private long firstFrameNanos;
+
+    private StartupProfiler() {
+    }
+
+    /**
+     * Возвращает профилировщик запуска; отсчёт идёт с первого обращения к классу.
+     */
+    public static StartupProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Завершает очередной последовательный этап запуска.
+     *
+     * @param phase имя этапа; повторные отметки одного этапа суммируются
+     */
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        phaseNanos.merge(phase, now - lastMarkNanos, Long::sum);
+        lastMarkNanos = now;
+    }
+
+    /**
+     * Записывает фоновый этап запуска. Вызывается из любого потока.
+     *
+     * @param phase      имя этапа
+     * @param startNanos момент начала этапа по {@link System#nanoTime()}
+     */
+    public synchronized void record(String phase, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        phaseNanos.merge(phase, elapsed, Long::sum);
+        if (firstFrameNanos != 0) {
+            Logger.at(LogLevel.Debug).with("phase", phase).with("millis", TimeUnit.NANOSECONDS.toMillis(elapsed))
+                    .log("Startup phase finished after first frame");
+        }
+    }
+
+    /**
+     * Отмечает первый кадр главного окна и записывает сводку в лог. Повторные вызовы ничего не делают.
+     */
+    public synchronized void firstFrame() {
+        if (firstFrameNanos != 0) {
+            return;
+        }
+        mark("paint");
+        firstFrameNanos = lastMarkNanos - startNanos;
+        long millis = TimeUnit.NANOSECONDS.toMillis(firstFrameNanos);
+        long budget = Long.getLong(BUDGET_PROPERTY, 1000);
+        LogEventBuilder event = Logger.at(millis > budget ? LogLevel.Warning : LogLevel.Info);
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            event = event.with(phase.getKey(), TimeUnit.NANOSECONDS.toMillis(phase.getValue()));
+        }
+        event = event.with("firstFrameMillis", millis);
+        // время от запуска процесса включает загрузку JVM и классов до main
+        ProcessHandle.current().info().startInstant().ifPresent(started -> Logger.at(LogLevel.Debug)
+                .with("millis", Duration.between(started, Instant.now()).toMillis())
+                .log("Process start to first frame"));
+        event.log("Startup finished");
+    }
+
+    /**
+     * Возвращает длительности этапов в нс в порядке их первой отметки.
+     */
+    public synchronized Map<String, Long> getPhaseNanos() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(phaseNanos));
+    }
+
+    /**
+     * Возвращает время до первого кадра в нс или 0, если кадра ещё не было.
+     */
+    public synchronized long getFirstFrameNanos() {
+        return firstFrameNanos;
+    }
+}
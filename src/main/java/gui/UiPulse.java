@@ -0,0 +1,233 @@
+package gui;
+
+import log.LogLevel;
+import log.Logger;
+
+import javax.swing.Timer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Единый такт обновления интерфейса.
+ * <p>
+ * Компоненты не ставят свои {@code repaint} и {@code invokeLater} на каждое событие модели или лога,
+ * а регистрируют обновление через {@link #register(String, Priority, Runnable)} и из любого потока
+ * отмечают его флагом {@link Handle#markDirty()}. Один таймер Swing раз в кадр
+ * ({@value #FPS_PROPERTY}, по умолчанию 60 кадров в секунду) выполняет в EDT все отмеченные обновления
+ * в порядке приоритета. Таймер Swing не копит пропущенные такты, поэтому в очереди EDT
+ * никогда не больше одного такта, как бы быстро ни шли события.
+ * <p>
+ * На такт отводится бюджет ({@value #BUDGET_PROPERTY}, по умолчанию 8 мс). Обновления
+ * {@link Priority#HIGH} выполняются всегда; остальные после исчерпания бюджета откладываются
+ * до следующего такта, но не более чем на {@value #MAX_DEFERRED_PULSES} тактов подряд.
+ */
+public final class UiPulse {
+    /**
+     * Частота тактов, кадров в секунду.
+     */
+    public static final String FPS_PROPERTY = "robots.ui.fps";
+    /**
+     * Бюджет одного такта, мс.
+     */
+    public static final String BUDGET_PROPERTY = "robots.ui.budget";
+
+    private static final int MAX_DEFERRED_PULSES = 30;
+    private static final UiPulse INSTANCE = new UiPulse(
+            Math.max(1, Integer.getInteger(FPS_PROPERTY, 60)),
+            TimeUnit.MILLISECONDS.toNanos(Math.max(1, Integer.getInteger(BUDGET_PROPERTY, 8))));
+
+    /**
+     * Приоритет обновления внутри такта.
+     */
+    public enum Priority {
+        /**
+         * Выполняется в каждом такте, где отмечено, независимо от бюджета (игровое поле).
+         */
+        HIGH,
+        NORMAL,
+        /**
+         * Первым откладывается при нехватке бюджета (лог, статистика).
+         */
+        LOW
+    }
+
+    /**
+     * Зарегистрированное обновление.
+     */
+    public final class Handle {
+        private final String name;
+        private final Priority priority;
+        private final Runnable update;
+        private final long periodNanos;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        // Пишется только в EDT
+        private volatile long runs;
+        // Поля ниже используются только в EDT
+        private long lastRunNanos;
+        private int deferredPulses;
+
+        private Handle(String name, Priority priority, Runnable update, long periodNanos) {
+            this.name = name;
+            this.priority = priority;
+            this.update = update;
+            this.periodNanos = periodNanos;
+        }
+
+        /**
+         * Отмечает, что обновление нужно выполнить в ближайшем такте. Вызывается из любого потока;
+         * повторные отметки до такта сливаются в одну.
+         */
+        public void markDirty() {
+            dirty.set(true);
+        }
+
+        /**
+         * Снимает обновление с такта.
+         */
+        public void cancel() {
+            handles.remove(this);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Возвращает, сколько раз обновление выполнено.
+         */
+        public long getRunCount() {
+            return runs;
+        }
+
+        private boolean isDue(long now) {
+            return dirty.get() || (periodNanos > 0 && now - lastRunNanos >= periodNanos);
+        }
+    }
+
+    // Упорядочены по приоритету; меняются редко, читаются каждый такт
+    private final CopyOnWriteArrayList<Handle> handles = new CopyOnWriteArrayList<>();
+    private final long budgetNanos;
+    private final Timer timer;
+    // Статистика тактов; пишется только в EDT
+    private volatile long pulses;
+    private volatile long deferredUpdates;
+    private volatile long maxPulseNanos;
+
+    private UiPulse(int fps, long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        this.timer = new Timer(1000 / fps, e -> pulse());
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Возвращает общий такт интерфейса.
+     */
+    public static UiPulse getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Регистрирует обновление, выполняемое по отметке {@link Handle#markDirty()}.
+     *
+     * @param name     имя для лога
+     * @param priority приоритет внутри такта
+     * @param update   обновление; выполняется в EDT
+     */
+    public Handle register(String name, Priority priority, Runnable update) {
+        return add(new Handle(name, priority, update, 0));
+    }
+
+    /**
+     * Регистрирует обновление, которое выполняется не чаще заданного периода без отметок,
+     * например опрос состояния модели.
+     *
+     * @param periodMillis период, мс
+     */
+    public Handle registerPeriodic(String name, Priority priority, long periodMillis, Runnable update) {
+        return add(new Handle(name, priority, update, TimeUnit.MILLISECONDS.toNanos(Math.max(1, periodMillis))));
+    }
+
+    private Handle add(Handle handle) {
+        synchronized (handles) {
+            int index = 0;
+            while (index < handles.size() && handles.get(index).priority.compareTo(handle.priority) <= 0) {
+                index++;
+            }
+            handles.add(index, handle);
+        }
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+        return handle;
+    }
+
+    /**
+     * Возвращает зарегистрированные обновления в порядке приоритета.
+     */
+    public List<Handle> getHandles() {
+        return Collections.unmodifiableList(handles);
+    }
+
+    /**
+     * Возвращает число выполненных тактов.
+     */
+    public long getPulseCount() {
+        return pulses;
+    }
+
+    /**
+     * Возвращает, сколько раз обновления откладывались из-за бюджета.
+     */
+    public long getDeferredCount() {
+        return deferredUpdates;
+    }
+
+    /**
+     * Возвращает самую долгую длительность такта, нс.
+     */
+    public long getMaxPulseNanos() {
+        return maxPulseNanos;
+    }
+
+    private void pulse() {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        long deferred = 0;
+        for (Handle handle : handles) {
+            long now = System.nanoTime();
+            if (!handle.isDue(now)) {
+                continue;
+            }
+            if (handle.priority != Priority.HIGH && now > deadline && handle.deferredPulses < MAX_DEFERRED_PULSES) {
+                handle.deferredPulses++;
+                deferred++;
+                continue;
+            }
+            // флаг снимается до обновления: отметка во время обновления даст ещё один проход в следующем такте
+            handle.dirty.set(false);
+            handle.deferredPulses = 0;
+            handle.lastRunNanos = now;
+            handle.runs++;
+            try {
+                handle.update.run();
+            } catch (RuntimeException e) {
+                Logger.at(LogLevel.Error).with("update", handle.name).log("UI update failed: {}", e.toString());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        pulses++;
+        if (deferred > 0) {
+            deferredUpdates += deferred;
+        }
+        if (elapsed > maxPulseNanos) {
+            maxPulseNanos = elapsed;
+        }
+    }
+}
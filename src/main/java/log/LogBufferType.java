@@ -0,0 +1,28 @@
+package log;
+
+/**
+ * Способ, которым писатели занимают ячейки {@link LogEntryRing} в {@link LogWindowSource}.
+ * Выбирается системным свойством {@code robots.log.buffer} ({@code locking} или {@code lock-free}).
+ */
+public enum LogBufferType
+{
+    /**
+     * Писатели занимают ячейки по очереди под одной блокировкой ReentrantLock.
+     */
+    LOCKING,
+    /**
+     * Писатели занимают ячейки без блокировок: номер выдаёт счётчик, ячейку — CAS штампа.
+     */
+    LOCK_FREE;
+
+    public static final String PROPERTY = "robots.log.buffer";
+
+    /**
+     * Возвращает тип буфера, заданный системным свойством; по умолчанию — {@link #LOCK_FREE}.
+     */
+    public static LogBufferType fromSystemProperty()
+    {
+        String value = System.getProperty(PROPERTY, "lock-free").trim();
+        return "locking".equalsIgnoreCase(value) ? LOCKING : LOCK_FREE;
+    }
+}
@@ -3,4 +3,13 @@ package log;
 public interface LogChangeListener
 {
     public void onLogChanged(); 
+
+    /**
+     * Сообщает о пачке новых записей с порядковыми номерами из диапазона [fromSequence, toSequence).
+     * По умолчанию сводится к {@link #onLogChanged()}.
+     */
+    public default void onLogChanged(long fromSequence, long toSequence)
+    {
+        onLogChanged();
+    }
 }
@@ -0,0 +1,21 @@
+package log;
+
+/**
+ * Часы для меток времени записей лога.
+ * Возвращают время от начала эпохи в наносекундах: точка отсчёта берётся из системных часов
+ * один раз, а ход — из {@link System#nanoTime()}, поэтому метки монотонны и не требуют выделения памяти.
+ */
+final class LogClock
+{
+    private static final long BASE_EPOCH_NANOS = System.currentTimeMillis() * 1_000_000L;
+    private static final long BASE_NANO_TIME = System.nanoTime();
+
+    private LogClock()
+    {
+    }
+
+    static long nowNanos()
+    {
+        return BASE_EPOCH_NANOS + (System.nanoTime() - BASE_NANO_TIME);
+    }
+}
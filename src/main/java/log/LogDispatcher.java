@@ -0,0 +1,106 @@
+package log;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * LogDispatcher — асинхронная рассылка уведомлений об изменении лога.
+ * <p>
+ * Поток, пишущий в лог, только помечает источник «грязным». Слушатели получают
+ * одно уведомление с диапазоном новых номеров не чаще раза за интервал, либо раньше,
+ * если за интервал накопилось {@code batchSize} записей. Рассылка всех источников идёт в одном общем
+ * потоке-демоне, поэтому источники не плодят потоков; перед уведомлением слушателей новые записи
+ * передаются получателям {@link LogSink}.
+ * Тот же поток периодически отчитывается о сериях повторов, свёрнутых {@link LogFloodGuard}.
+ */
+class LogDispatcher {
+    private static volatile Thread dispatchThread;
+    private static final ScheduledExecutorService SHARED_EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "LogDispatcher");
+                thread.setDaemon(true);
+                dispatchThread = thread;
+                return thread;
+            });
+    // Сколько закрытие ждёт последнюю рассылку
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final LogWindowSource source;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final ScheduledExecutorService executor = SHARED_EXECUTOR;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean expedited = new AtomicBoolean();
+    private volatile boolean closed;
+    /**
+     * Номер, до которого слушатели уже уведомлены. Меняется только в потоке рассылки.
+     */
+    private volatile long notifiedSequence;
+
+    /**
+     * @param source         источник, чьих слушателей нужно уведомлять
+     * @param intervalMillis минимальный интервал между уведомлениями
+     * @param batchSize      число записей, после которого уведомление отправляется досрочно
+     */
+    LogDispatcher(LogWindowSource source, long intervalMillis, int batchSize) {
+        this.source = source;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Отмечает появление новых записей. Вызывается из любого потока и не блокирует его.
+     *
+     * @param appendedCount общее число записей в источнике после добавления
+     */
+    void markDirty(long appendedCount) {
+        if (closed) {
+            return;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(this::flush, intervalMillis, TimeUnit.MILLISECONDS);
+        } else if (appendedCount - notifiedSequence >= batchSize && expedited.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        // Сбрасываем флаги до чтения счётчика, чтобы не потерять записи, пришедшие во время рассылки
+        scheduled.set(false);
+        expedited.set(false);
+        if (source.reportRepeats() && !closed && scheduled.compareAndSet(false, true)) {
+            // серия повторов ещё не отчитана — проверим снова через интервал
+            executor.schedule(this::flush, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        long from = notifiedSequence;
+        long to = source.appendedCount();
+        if (to > from) {
+            source.feedSinks(to);
+            notifiedSequence = to;
+            source.notifyListeners(from, to);
+        }
+    }
+
+    /**
+     * Прекращает рассылку: доставляет уже опубликованные записи последний раз и больше не планирует уведомлений.
+     * Ждёт последнюю рассылку, если вызван не из потока рассылки.
+     */
+    void close() {
+        closed = true;
+        if (Thread.currentThread() == dispatchThread) {
+            flush();
+            return;
+        }
+        try {
+            executor.submit(this::flush).get(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Log dispatch did not finish on close: " + e);
+        }
+    }
+}
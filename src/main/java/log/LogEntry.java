@@ -1,24 +1,92 @@
 package log;
 
-public class LogEntry
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Неизменяемая запись лога. Её можно хранить и передавать между потоками.
+ */
+public final class LogEntry implements LogRecord
 {
-    private LogLevel m_logLevel;
-    private String m_strMessage;
+    private final LogLevel m_logLevel;
+    private final String m_strMessage;
+    private final Map<String, Object> m_fields;
+    private final long m_sequence;
+    private final long m_timestampNanos;
+    private final long m_threadId;
     
     public LogEntry(LogLevel logLevel, String strMessage)
+    {
+        this(logLevel, strMessage, Collections.emptyMap());
+    }
+
+    /**
+     * @param fields структурированные поля записи (ключ — значение); сохраняются через неизменяемую обёртку
+     */
+    public LogEntry(LogLevel logLevel, String strMessage, Map<String, Object> fields)
+    {
+        this(logLevel, strMessage, fields, -1, LogClock.nowNanos(), Thread.currentThread().threadId());
+    }
+
+    /**
+     * @param sequence       порядковый номер записи в источнике или -1, если запись в источник не попадала
+     * @param timestampNanos время записи в наносекундах от начала эпохи
+     * @param threadId       идентификатор потока, сделавшего запись
+     */
+    public LogEntry(LogLevel logLevel, String strMessage, Map<String, Object> fields,
+                    long sequence, long timestampNanos, long threadId)
     {
         m_strMessage = strMessage;
         m_logLevel = logLevel;
+        // уже неизменяемое отображение не оборачивается повторно
+        m_fields = Collections.unmodifiableMap(fields);
+        m_sequence = sequence;
+        m_timestampNanos = timestampNanos;
+        m_threadId = threadId;
     }
     
+    @Override
     public String getMessage()
     {
         return m_strMessage;
     }
     
+    @Override
     public LogLevel getLevel()
     {
         return m_logLevel;
     }
-}
 
+    @Override
+    public Map<String, Object> getFields()
+    {
+        return m_fields;
+    }
+
+    @Override
+    public long getSequence()
+    {
+        return m_sequence;
+    }
+
+    @Override
+    public long getTimestampNanos()
+    {
+        return m_timestampNanos;
+    }
+
+    @Override
+    public long getThreadId()
+    {
+        return m_threadId;
+    }
+
+    /**
+     * Запись неизменяема, поэтому копией служит она сама.
+     */
+    @Override
+    public LogEntry copy()
+    {
+        return this;
+    }
+}
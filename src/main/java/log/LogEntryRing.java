@@ -0,0 +1,238 @@
+package log;
+
+import java.lang.invoke.VarHandle;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LogEntryRing — кольцо заранее выделенных ячеек для записей лога.
+ * <p>
+ * Записи не создаются как отдельные объекты: уровень, время, поток и ссылки на текст и поля
+ * хранятся в параллельных массивах-столбцах. Каждая запись получает порядковый номер,
+ * монотонно растущий для всех потоков-производителей; ячейка выбирается как {@code номер % capacity}
+ * (маской, если ёмкость — степень двойки).
+ * <p>
+ * Рядом с каждой ячейкой хранится штамп:
+ * {@code seq + 1} — ячейка опубликована, {@code -(seq + 1)} — ячейка записывается.
+ * Читатель копирует столбцы в {@link LogEntryView} и сверяет штамп до и после чтения,
+ * поэтому чтение не блокирует писателей и обнаруживает вытеснение записи.
+ * <p>
+ * Писатели занимают ячейки либо без блокировок ({@link LogBufferType#LOCK_FREE}),
+ * либо по очереди под одной блокировкой ({@link LogBufferType#LOCKING}).
+ */
+public class LogEntryRing {
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray stamps;
+    private final AtomicLong tail = new AtomicLong();
+    private final ReentrantLock writeLock;
+
+    private final long[] timestamps;
+    private final long[] threadIds;
+    private final byte[] levels;
+    private final String[] messages;
+    // Поля записей; Object[], потому что массив параметризованного типа не создать без rawtypes
+    private final Object[] fields;
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    /**
+     * Конструктор.
+     *
+     * @param capacity максимальное число записей в кольце
+     * @param type     способ занятия ячеек писателями
+     */
+    public LogEntryRing(int capacity, LogBufferType type) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.mask = Integer.bitCount(capacity) == 1 ? capacity - 1 : -1;
+        this.stamps = new AtomicLongArray(capacity);
+        this.writeLock = type == LogBufferType.LOCKING ? new ReentrantLock() : null;
+        this.timestamps = new long[capacity];
+        this.threadIds = new long[capacity];
+        this.levels = new byte[capacity];
+        this.messages = new String[capacity];
+        this.fields = new Object[capacity];
+    }
+
+    /**
+     * Записывает запись в очередную ячейку, ничего не выделяя в куче.
+     *
+     * @return порядковый номер записи
+     */
+    public long publish(LogLevel level, String message, Map<String, Object> entryFields) {
+        long timestamp = LogClock.nowNanos();
+        long threadId = Thread.currentThread().threadId();
+        if (writeLock != null) {
+            writeLock.lock();
+            try {
+                long sequence = tail.getAndIncrement();
+                int index = index(sequence);
+                stamps.set(index, -(sequence + 1));
+                write(index, sequence, level, message, entryFields, timestamp, threadId);
+                return sequence;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        long sequence = tail.getAndIncrement();
+        int index = index(sequence);
+        long published = sequence + 1;
+        while (true) {
+            long stamp = stamps.get(index);
+            if (stamp >= published || -stamp >= published) {
+                // ячейку уже занял писатель следующего круга — запись вытеснена, не успев появиться
+                return sequence;
+            }
+            if (stamp < 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (stamps.compareAndSet(index, stamp, -published)) {
+                break;
+            }
+        }
+        write(index, sequence, level, message, entryFields, timestamp, threadId);
+        return sequence;
+    }
+
+    private int index(long sequence) {
+        return mask >= 0 ? (int) (sequence & mask) : (int) (sequence % capacity);
+    }
+
+    private void write(int index, long sequence, LogLevel level, String message, Map<String, Object> entryFields,
+                       long timestamp, long threadId) {
+        timestamps[index] = timestamp;
+        threadIds[index] = threadId;
+        levels[index] = (byte) level.ordinal();
+        messages[index] = message;
+        fields[index] = entryFields;
+        stamps.set(index, sequence + 1);
+    }
+
+    /**
+     * Копирует запись с заданным номером в переиспользуемое представление.
+     *
+     * @param sequence порядковый номер записи
+     * @param view     представление, в которое копируются данные
+     * @return {@code true}, если запись прочитана; {@code false}, если она ещё не опубликована или вытеснена
+     */
+    public boolean read(long sequence, LogEntryView view) {
+        if (sequence < 0 || sequence >= tail.get()) {
+            return false;
+        }
+        int index = index(sequence);
+        long stamp = stamps.get(index);
+        if (stamp != sequence + 1) {
+            return false;
+        }
+        long timestamp = timestamps[index];
+        long threadId = threadIds[index];
+        byte level = levels[index];
+        String message = messages[index];
+        Map<String, Object> entryFields = fieldsAt(index);
+        VarHandle.loadLoadFence();
+        if (stamps.get(index) != stamp) {
+            return false;
+        }
+        view.set(LEVELS[level], message, entryFields == null ? Collections.emptyMap() : entryFields,
+                sequence, timestamp, threadId);
+        return true;
+    }
+
+    /**
+     * Копирует записи с номерами из диапазона [fromSequence, toSequence) в неизменяемые {@link LogEntry}.
+     * Столбцы читаются пачкой — не больше чем двумя {@link System#arraycopy} на столбец
+     * (второй нужен, если диапазон переходит через конец кольца); штампы ячеек сверяются до и после копирования,
+     * и записи, которые писатели успели занять или вытеснить, в результат не попадают.
+     *
+     * @param result список, в который добавляются прочитанные записи в порядке номеров
+     * @return число добавленных записей
+     */
+    public int readRange(long fromSequence, long toSequence, List<? super LogEntry> result) {
+        long tailSequence = tail.get();
+        fromSequence = Math.max(fromSequence, Math.max(0, tailSequence - capacity));
+        toSequence = Math.min(toSequence, tailSequence);
+        int count = (int) Math.max(0, toSequence - fromSequence);
+        if (count == 0) {
+            return 0;
+        }
+        long[] before = new long[count];
+        int start = index(fromSequence);
+        for (int i = 0; i < count; i++) {
+            before[i] = stamps.get(start + i < capacity ? start + i : start + i - capacity);
+        }
+        long[] entryTimestamps = new long[count];
+        long[] entryThreads = new long[count];
+        byte[] entryLevels = new byte[count];
+        String[] entryMessages = new String[count];
+        Object[] entryFields = new Object[count];
+        int first = Math.min(count, capacity - start);
+        copyColumns(start, 0, first, entryTimestamps, entryThreads, entryLevels, entryMessages, entryFields);
+        copyColumns(0, first, count - first, entryTimestamps, entryThreads, entryLevels, entryMessages, entryFields);
+        VarHandle.loadLoadFence();
+        int added = 0;
+        for (int i = 0; i < count; i++) {
+            long sequence = fromSequence + i;
+            int index = start + i < capacity ? start + i : start + i - capacity;
+            if (before[i] != sequence + 1 || stamps.get(index) != before[i]) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> entryMap = (Map<String, Object>) entryFields[i];
+            result.add(new LogEntry(LEVELS[entryLevels[i]], entryMessages[i],
+                    entryMap == null ? Collections.emptyMap() : entryMap, sequence, entryTimestamps[i], entryThreads[i]));
+            added++;
+        }
+        return added;
+    }
+
+    private void copyColumns(int from, int to, int length, long[] entryTimestamps, long[] entryThreads,
+                             byte[] entryLevels, String[] entryMessages, Object[] entryFields) {
+        if (length <= 0) {
+            return;
+        }
+        System.arraycopy(timestamps, from, entryTimestamps, to, length);
+        System.arraycopy(threadIds, from, entryThreads, to, length);
+        System.arraycopy(levels, from, entryLevels, to, length);
+        System.arraycopy(messages, from, entryMessages, to, length);
+        System.arraycopy(fields, from, entryFields, to, length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> fieldsAt(int index) {
+        // в ячейку пишет только publish, и всегда Map<String, Object>
+        return (Map<String, Object>) fields[index];
+    }
+
+    /**
+     * Возвращает номер самой старой записи, которая ещё может находиться в кольце.
+     */
+    public long headSequence() {
+        return Math.max(0, tail.get() - capacity);
+    }
+
+    /**
+     * Возвращает номер, который получит следующая запись.
+     */
+    public long tailSequence() {
+        return tail.get();
+    }
+
+    /**
+     * Возвращает текущее количество записей в кольце
+     */
+    public int size() {
+        return (int) Math.min(tail.get(), capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,73 @@
+package log;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Переиспользуемое представление записи из {@link LogEntryRing}.
+ * Заполняется методом {@link LogEntryRing#read(long, LogEntryView)} без выделения памяти;
+ * содержимое действительно до следующего чтения в то же представление.
+ * Чтобы сохранить запись, используйте {@link #copy()}: она возвращает отдельную неизменяемую {@link LogEntry}.
+ */
+public final class LogEntryView implements LogRecord
+{
+    private LogLevel m_level = LogLevel.Trace;
+    private String m_message = "";
+    private Map<String, Object> m_fields = Collections.emptyMap();
+    private long m_sequence = -1;
+    private long m_timestampNanos;
+    private long m_threadId;
+
+    void set(LogLevel level, String message, Map<String, Object> fields,
+             long sequence, long timestampNanos, long threadId)
+    {
+        m_level = level;
+        m_message = message;
+        m_fields = fields;
+        m_sequence = sequence;
+        m_timestampNanos = timestampNanos;
+        m_threadId = threadId;
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return m_message;
+    }
+
+    @Override
+    public LogLevel getLevel()
+    {
+        return m_level;
+    }
+
+    @Override
+    public Map<String, Object> getFields()
+    {
+        return m_fields;
+    }
+
+    @Override
+    public long getSequence()
+    {
+        return m_sequence;
+    }
+
+    @Override
+    public long getTimestampNanos()
+    {
+        return m_timestampNanos;
+    }
+
+    @Override
+    public long getThreadId()
+    {
+        return m_threadId;
+    }
+
+    @Override
+    public LogEntry copy()
+    {
+        return new LogEntry(m_level, m_message, m_fields, m_sequence, m_timestampNanos, m_threadId);
+    }
+}
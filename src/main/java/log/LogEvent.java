@@ -0,0 +1,51 @@
+package log;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Запись лога со структурированными полями для включённого уровня.
+ */
+final class LogEvent implements LogEventBuilder
+{
+    private final LogWindowSource m_source;
+    private final LogLevel m_level;
+    private Map<String, Object> m_fields = Collections.emptyMap();
+
+    LogEvent(LogWindowSource source, LogLevel level)
+    {
+        m_source = source;
+        m_level = level;
+    }
+
+    @Override
+    public LogEventBuilder with(String key, Object value)
+    {
+        if (m_fields.isEmpty())
+        {
+            m_fields = new LinkedHashMap<>(4);
+        }
+        m_fields.put(key, value);
+        return this;
+    }
+
+    @Override
+    public void log(String message)
+    {
+        m_source.append(m_level, message, Collections.unmodifiableMap(m_fields));
+    }
+
+    @Override
+    public void log(Supplier<String> message)
+    {
+        log(message.get());
+    }
+
+    @Override
+    public void log(String pattern, Object... args)
+    {
+        m_source.append(m_level, pattern, MessageFormatter.format(pattern, args), Collections.unmodifiableMap(m_fields));
+    }
+}
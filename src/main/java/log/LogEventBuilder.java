@@ -0,0 +1,55 @@
+package log;
+
+import java.util.function.Supplier;
+
+/**
+ * Построитель записи лога со структурированными полями.
+ * Получается через {@link LogWindowSource#at(LogLevel)} или {@link Logger#at(LogLevel)};
+ * для выключенного уровня возвращается {@link #DISABLED}, который ничего не создаёт и не форматирует.
+ */
+public interface LogEventBuilder
+{
+    /**
+     * Построитель для выключенного уровня: все вызовы игнорируются.
+     */
+    LogEventBuilder DISABLED = new LogEventBuilder()
+    {
+        @Override
+        public LogEventBuilder with(String key, Object value)
+        {
+            return this;
+        }
+
+        @Override
+        public void log(String message)
+        {
+        }
+
+        @Override
+        public void log(Supplier<String> message)
+        {
+        }
+
+        @Override
+        public void log(String pattern, Object... args)
+        {
+        }
+    };
+
+    /**
+     * Добавляет к записи поле {@code key=value}.
+     */
+    LogEventBuilder with(String key, Object value);
+
+    void log(String message);
+
+    /**
+     * Записывает сообщение, которое вычисляется только здесь, при включённом уровне.
+     */
+    void log(Supplier<String> message);
+
+    /**
+     * Записывает сообщение по шаблону с подстановками {@code {}}.
+     */
+    void log(String pattern, Object... args);
+}
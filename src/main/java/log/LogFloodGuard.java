@@ -0,0 +1,359 @@
+package log;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * LogFloodGuard — защита лога от потока одинаковых сообщений.
+ * <p>
+ * Работает в два шага:
+ * <ol>
+ *     <li>Подряд идущие одинаковые записи (уровень, текст и поля) сворачиваются: в лог попадает первая,
+ *     а вместо остальных — итоговая запись «повторено N раз», когда серия прерывается
+ *     или не чаще раза в {@link #REPEAT_REPORT_INTERVAL_NANOS} нс, пока она продолжается.</li>
+ *     <li>Для каждого шаблона сообщения ведётся «ведро жетонов»: не больше {@code burst} записей подряд
+ *     и не больше {@code ratePerSecond} записей в секунду в среднем. Лишние записи отбрасываются,
+ *     а первая пропущенная после них запись получает поле {@value #SUPPRESSED_FIELD} с числом отброшенных.</li>
+ * </ol>
+ * Вёдра хранятся в таблице фиксированного размера с открытой адресацией по шаблону, поэтому коллизия хешей
+ * не сбрасывает чужой бюджет, а память не растёт при произвольных сообщениях. Ведро, которое не трогали
+ * {@value #IDLE_REFILLS} полных пополнения, снова полно и ничем не отличается от нового, поэтому его ячейку
+ * занимает новый шаблон; теряется только несообщённое число отброшенных записей. Шаблон, которому не нашлось
+ * ячейки за {@value #MAX_PROBES} проб, частотой не ограничивается: общее ведро заставило бы несвязанные
+ * сообщения отбрасывать друг друга.
+ * Счётчики {@link #collapsedCount()} и {@link #rateLimitedCount()} служат метриками.
+ * Методы вызываются из любого потока.
+ */
+public class LogFloodGuard
+{
+    /**
+     * Поле записи с числом записей того же шаблона, отброшенных перед ней.
+     */
+    public static final String SUPPRESSED_FIELD = "suppressed";
+    /**
+     * Поле итоговой записи серии с числом свёрнутых повторов.
+     */
+    public static final String REPEATED_FIELD = "repeated";
+    /**
+     * Как часто продолжающаяся серия повторов отчитывается итоговой записью.
+     */
+    public static final long REPEAT_REPORT_INTERVAL_NANOS = 1_000_000_000L;
+
+    private static final int TABLE_SIZE = 1024;
+    private static final int MAX_PROBES = 16;
+    // Через сколько полных пополнений без записей ячейку ведра можно отдать другому шаблону
+    private static final int IDLE_REFILLS = 2;
+
+    private final double ratePerNano;
+    private final int burst;
+    private final long idleNanos;
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(TABLE_SIZE);
+    private final AtomicReference<Run> lastRun = new AtomicReference<>();
+    private final AtomicLong collapsedCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+
+    /**
+     * @param ratePerSecond средняя допустимая частота записей одного шаблона
+     * @param burst         сколько записей одного шаблона пропускается подряд без ограничения
+     */
+    public LogFloodGuard(double ratePerSecond, int burst)
+    {
+        if (ratePerSecond <= 0 || burst <= 0)
+        {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.ratePerNano = ratePerSecond / 1e9;
+        this.burst = burst;
+        this.idleNanos = (long) Math.ceil(IDLE_REFILLS * burst / ratePerNano);
+    }
+
+    /**
+     * Серия подряд идущих одинаковых записей.
+     * Счётчик повторов становится отрицательным, когда серия закрыта. Он хранится в самой серии
+     * и меняется через {@link VarHandle}, поэтому начало серии стоит одного объекта.
+     */
+    private static final class Run
+    {
+        private static final VarHandle REPEATS;
+        static
+        {
+            try
+            {
+                REPEATS = MethodHandles.lookup().findVarHandle(Run.class, "repeats", long.class);
+            }
+            catch (ReflectiveOperationException e)
+            {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final LogLevel level;
+        final String message;
+        final Map<String, Object> fields;
+        private volatile long repeats;
+        volatile long reportedNanos;
+
+        Run(LogLevel level, String message, Map<String, Object> fields, long nowNanos)
+        {
+            this.level = level;
+            this.message = message;
+            this.fields = fields;
+            this.reportedNanos = nowNanos;
+        }
+
+        long repeats()
+        {
+            return repeats;
+        }
+
+        boolean casRepeats(long expected, long value)
+        {
+            return REPEATS.compareAndSet(this, expected, value);
+        }
+
+        long closeRepeats()
+        {
+            return (long) REPEATS.getAndSet(this, Long.MIN_VALUE);
+        }
+
+        boolean matches(LogLevel otherLevel, String otherMessage, Map<String, Object> otherFields)
+        {
+            return level == otherLevel && message.equals(otherMessage) && fields.equals(otherFields);
+        }
+
+        /**
+         * Итоговая запись о повторах; уровень и поля совпадают с повторявшейся записью.
+         */
+        LogEntry summary(long repeated)
+        {
+            Map<String, Object> summaryFields = new LinkedHashMap<>(fields);
+            summaryFields.put(REPEATED_FIELD, repeated);
+            return new LogEntry(level, MessageFormatter.format("{} (repeated {} times)", message, repeated),
+                    Collections.unmodifiableMap(summaryFields));
+        }
+    }
+
+    /**
+     * Ведро жетонов одного шаблона. Изменяется под собственным монитором.
+     */
+    private static final class Bucket
+    {
+        final String template;
+        double tokens;
+        long refilledNanos;
+        long suppressed;
+
+        Bucket(String template, double tokens, long nowNanos)
+        {
+            this.template = template;
+            this.tokens = tokens;
+            this.refilledNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Пытается продолжить текущую серию записью.
+     *
+     * @return {@code true}, если запись повторяет предыдущую и поглощена серией
+     */
+    boolean absorbRepeat(LogLevel level, String message, Map<String, Object> fields)
+    {
+        Run run = lastRun.get();
+        if (run == null || !run.matches(level, message, fields))
+        {
+            return false;
+        }
+        long repeats;
+        do
+        {
+            repeats = run.repeats();
+            if (repeats < 0)
+            {
+                return false;
+            }
+        }
+        while (!run.casRepeats(repeats, repeats + 1));
+        collapsedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Начинает новую серию с записи, которая не повторяет предыдущую.
+     * Вызывается только для записи, которая действительно попадёт в лог, то есть уже прошла {@link #acquire}.
+     *
+     * @return итоговая запись о повторах закрытой предыдущей серии или {@code null}, если повторов не было
+     */
+    LogEntry startRun(LogLevel level, String message, Map<String, Object> fields, long nowNanos)
+    {
+        return close(lastRun.getAndSet(new Run(level, message, fields, nowNanos)));
+    }
+
+    /**
+     * Отчитывается о повторах продолжающейся серии, если с прошлого отчёта прошло
+     * не меньше {@link #REPEAT_REPORT_INTERVAL_NANOS}. Серия остаётся открытой.
+     *
+     * @return итоговая запись о повторах или {@code null}, если отчитываться рано или не о чем
+     */
+    LogEntry reportRepeats(long nowNanos)
+    {
+        Run current = lastRun.get();
+        if (current == null || nowNanos - current.reportedNanos < REPEAT_REPORT_INTERVAL_NANOS)
+        {
+            return null;
+        }
+        long repeats;
+        do
+        {
+            repeats = current.repeats();
+            if (repeats <= 0)
+            {
+                return null;
+            }
+        }
+        while (!current.casRepeats(repeats, 0));
+        current.reportedNanos = nowNanos;
+        return current.summary(repeats);
+    }
+
+    /**
+     * Проверяет, есть ли у текущей серии неотчитанные повторы.
+     */
+    boolean hasPendingRepeats()
+    {
+        Run current = lastRun.get();
+        return current != null && current.repeats() > 0;
+    }
+
+    /**
+     * Закрывает текущую серию, например при завершении работы.
+     *
+     * @return итоговая запись о повторах или {@code null}, если повторов не было
+     */
+    LogEntry closeRun()
+    {
+        return close(lastRun.getAndSet(null));
+    }
+
+    private static LogEntry close(Run run)
+    {
+        if (run == null)
+        {
+            return null;
+        }
+        long repeats = run.closeRepeats();
+        return repeats > 0 ? run.summary(repeats) : null;
+    }
+
+    /**
+     * Списывает жетон из ведра шаблона.
+     *
+     * @param template шаблон сообщения, по которому ведётся учёт
+     * @param nowNanos текущее время
+     * @return -1, если запись нужно отбросить; иначе число записей шаблона, отброшенных перед этой
+     */
+    long acquire(String template, long nowNanos)
+    {
+        Bucket bucket = bucket(template, nowNanos);
+        if (bucket == null)
+        {
+            return 0;
+        }
+        synchronized (bucket)
+        {
+            // время другого потока могло оказаться чуть раньше последнего пополнения
+            long elapsed = Math.max(0, nowNanos - bucket.refilledNanos);
+            bucket.tokens = Math.min(burst, bucket.tokens + elapsed * ratePerNano);
+            bucket.refilledNanos = Math.max(bucket.refilledNanos, nowNanos);
+            if (bucket.tokens < 1)
+            {
+                bucket.suppressed++;
+                rateLimitedCount.incrementAndGet();
+                return -1;
+            }
+            bucket.tokens -= 1;
+            long suppressed = bucket.suppressed;
+            bucket.suppressed = 0;
+            return suppressed;
+        }
+    }
+
+    /**
+     * Находит ведро шаблона или занимает для него свободную ячейку; при гонке за ячейку побеждает один поток,
+     * остальные используют его ведро. Если свободных ячеек нет, занимает ячейку простаивающего ведра.
+     *
+     * @return ведро шаблона или {@code null}, если все ячейки его проб заняты действующими вёдрами
+     */
+    private Bucket bucket(String template, long nowNanos)
+    {
+        int hash = Objects.hashCode(template);
+        int start = (hash ^ (hash >>> 16)) & (TABLE_SIZE - 1);
+        int idleIndex = -1;
+        Bucket idle = null;
+        for (int probe = 0; probe < MAX_PROBES; probe++)
+        {
+            int index = (start + probe) & (TABLE_SIZE - 1);
+            Bucket bucket = buckets.get(index);
+            if (bucket == null)
+            {
+                // ячейки не освобождаются, поэтому дальше по пробам ведра этого шаблона нет
+                Bucket created = new Bucket(template, burst, nowNanos);
+                if (buckets.compareAndSet(index, null, created))
+                {
+                    return created;
+                }
+                bucket = buckets.get(index);
+            }
+            if (Objects.equals(bucket.template, template))
+            {
+                return bucket;
+            }
+            if (idle == null && isIdle(bucket, nowNanos))
+            {
+                idleIndex = index;
+                idle = bucket;
+            }
+        }
+        if (idle == null)
+        {
+            return null;
+        }
+        Bucket created = new Bucket(template, burst, nowNanos);
+        if (buckets.compareAndSet(idleIndex, idle, created))
+        {
+            return created;
+        }
+        Bucket winner = buckets.get(idleIndex);
+        return Objects.equals(winner.template, template) ? winner : null;
+    }
+
+    private boolean isIdle(Bucket bucket, long nowNanos)
+    {
+        synchronized (bucket)
+        {
+            return nowNanos - bucket.refilledNanos >= idleNanos;
+        }
+    }
+
+    /**
+     * Возвращает число записей, свёрнутых в серии повторов.
+     */
+    public long collapsedCount()
+    {
+        return collapsedCount.get();
+    }
+
+    /**
+     * Возвращает число записей, отброшенных ограничением частоты.
+     */
+    public long rateLimitedCount()
+    {
+        return rateLimitedCount.get();
+    }
+}
@@ -0,0 +1,329 @@
+package log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LogIndex — инкрементальный инвертированный индекс по сообщениям лога.
+ * <p>
+ * Для каждого слова хранится список порядковых номеров записей, в которых оно встречается.
+ * Номера сжаты: внутри блока по {@value #BLOCK_SIZE} номеров хранятся разности
+ * с предыдущим номером в формате varint. Отдельные списки ведутся для каждого уровня лога.
+ * <p>
+ * Индекс подключается к источнику как {@link LogSink} и пополняется в потоке рассылки
+ * строго в порядке номеров, поэтому поток, пишущий в лог, не ждёт индексации.
+ * Когда записи перестают быть доступны в источнике, индекс отбрасывает целые блоки номеров.
+ * Поиск можно выполнять из любого потока.
+ */
+public class LogIndex implements LogSink {
+    /**
+     * Сколько номеров хранится в одном сжатом блоке.
+     */
+    public static final int BLOCK_SIZE = 128;
+    /**
+     * Через сколько вытесненных записей индекс очищается от устаревших блоков.
+     */
+    private static final long PRUNE_STEP = 1024;
+
+    private final LogWindowSource source;
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final PostingList[] levelPostings = new PostingList[LogLevel.values().length];
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long prunedUpTo;
+    private volatile long indexedCount;
+
+    /**
+     * Создаёт индекс для источника.
+     * Чтобы индекс получал записи, его нужно подключить через {@link LogWindowSource#addSink(LogSink)}.
+     *
+     * @param source источник записей лога
+     */
+    public LogIndex(LogWindowSource source) {
+        this.source = source;
+        for (int i = 0; i < levelPostings.length; i++) {
+            levelPostings[i] = new PostingList();
+        }
+    }
+
+    @Override
+    public boolean offer(long sequence, LogRecord entry) {
+        lock.writeLock().lock();
+        try {
+            add(sequence, entry);
+            indexedCount = sequence + 1;
+            if (sequence % PRUNE_STEP == 0) {
+                long firstAvailable = source.firstSequence();
+                if (firstAvailable - prunedUpTo >= PRUNE_STEP) {
+                    prune(firstAvailable);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Ищет записи, содержащие все слова запроса, среди записей указанных уровней.
+     *
+     * @param text   слова запроса; запрос без слов отбирает записи только по уровню,
+     *               а при всех уровнях возвращает все проиндексированные записи
+     * @param levels допустимые уровни
+     * @param limit  максимальное число результатов; возвращаются самые новые
+     * @return номера найденных записей по возрастанию
+     */
+    public long[] search(String text, Set<LogLevel> levels, int limit) {
+        return search(text, levels, 0, limit);
+    }
+
+    /**
+     * Ищет записи, как {@link #search(String, Set, int)}, но только среди записей с номерами
+     * не меньше {@code fromSequence}. Блоки номеров целиком до этой границы не распаковываются,
+     * поэтому повторный поиск по новым записям стоит пропорционально их числу, а не размеру индекса.
+     *
+     * @param fromSequence наименьший номер, который может попасть в результат
+     */
+    public long[] search(String text, Set<LogLevel> levels, long fromSequence, int limit) {
+        List<String> tokens = tokenize(text);
+        lock.readLock().lock();
+        try {
+            long[] result = null;
+            for (String token : tokens) {
+                PostingList list = postings.get(token);
+                if (list == null) {
+                    return new long[0];
+                }
+                long[] matches = list.decode(fromSequence);
+                result = result == null ? matches : intersect(result, matches);
+            }
+            // без слов запроса записи отбираются по уровням, даже если допустимы все
+            if (result == null || !levels.containsAll(EnumSet.allOf(LogLevel.class))) {
+                long[] byLevel = new long[0];
+                for (LogLevel level : levels) {
+                    byLevel = union(byLevel, levelPostings[level.ordinal()].decode(fromSequence));
+                }
+                result = result == null ? byLevel : intersect(result, byLevel);
+            }
+            return result.length > limit ? Arrays.copyOfRange(result, result.length - limit, result.length) : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает номер, следующий за последней проиндексированной записью:
+     * все записи с меньшими номерами уже видны поиску.
+     */
+    public long indexedCount() {
+        return indexedCount;
+    }
+
+    /**
+     * Возвращает число различных слов в индексе.
+     */
+    public int tokenCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(long sequence, LogRecord entry) {
+        levelPostings[entry.getLevel().ordinal()].add(sequence);
+        for (String token : tokenize(entry.getMessage())) {
+            postings.computeIfAbsent(token, key -> new PostingList()).add(sequence);
+        }
+        for (Object value : entry.getFields().values()) {
+            for (String token : tokenize(String.valueOf(value))) {
+                postings.computeIfAbsent(token, key -> new PostingList()).add(sequence);
+            }
+        }
+    }
+
+    private void prune(long firstAvailable) {
+        Iterator<PostingList> iterator = postings.values().iterator();
+        while (iterator.hasNext()) {
+            PostingList list = iterator.next();
+            list.prune(firstAvailable);
+            if (list.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        for (PostingList list : levelPostings) {
+            list.prune(firstAvailable);
+        }
+        prunedUpTo = firstAvailable;
+    }
+
+    /**
+     * Разбивает текст на слова: последовательности букв и цифр в нижнем регистре.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static long[] intersect(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long[] union(long[] left, long[] right) {
+        long[] result = new long[left.length + right.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length || j < right.length) {
+            if (j >= right.length || (i < left.length && left[i] < right[j])) {
+                result[size++] = left[i++];
+            } else if (i >= left.length || right[j] < left[i]) {
+                result[size++] = right[j++];
+            } else {
+                result[size++] = left[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Сжатый список номеров записей по возрастанию, разбитый на блоки.
+     */
+    private static final class PostingList {
+        private final List<Block> blocks = new ArrayList<>();
+        private int size;
+
+        void add(long sequence) {
+            Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+            if (last != null && sequence <= last.last) {
+                return;
+            }
+            if (last == null || last.count == BLOCK_SIZE) {
+                last = new Block(sequence);
+                blocks.add(last);
+            } else {
+                last.append(sequence);
+            }
+            size++;
+        }
+
+        void prune(long firstAvailable) {
+            int dropped = 0;
+            while (dropped < blocks.size() && blocks.get(dropped).last < firstAvailable) {
+                size -= blocks.get(dropped).count;
+                dropped++;
+            }
+            blocks.subList(0, dropped).clear();
+        }
+
+        boolean isEmpty() {
+            return blocks.isEmpty();
+        }
+
+        /**
+         * Распаковывает номера не меньше {@code fromSequence}, пропуская блоки, целиком лежащие раньше.
+         */
+        long[] decode(long fromSequence) {
+            int first = 0;
+            int skipped = 0;
+            while (first < blocks.size() && blocks.get(first).last < fromSequence) {
+                skipped += blocks.get(first).count;
+                first++;
+            }
+            long[] result = new long[size - skipped];
+            int position = 0;
+            for (int i = first; i < blocks.size(); i++) {
+                position = blocks.get(i).decode(result, position);
+            }
+            int start = 0;
+            while (start < position && result[start] < fromSequence) {
+                start++;
+            }
+            return start == 0 ? result : Arrays.copyOfRange(result, start, position);
+        }
+    }
+
+    /**
+     * Блок номеров: первый номер хранится явно, остальные — разностями в формате varint.
+     */
+    private static final class Block {
+        private final long first;
+        private long last;
+        private int count = 1;
+        private byte[] data = new byte[16];
+        private int length;
+
+        Block(long first) {
+            this.first = first;
+            this.last = first;
+        }
+
+        void append(long sequence) {
+            long delta = sequence - last;
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((delta & ~0x7FL) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            last = sequence;
+            count++;
+        }
+
+        int decode(long[] target, int position) {
+            long value = first;
+            target[position++] = value;
+            int offset = 0;
+            while (offset < length) {
+                long delta = 0;
+                int shift = 0;
+                byte current;
+                do {
+                    current = data[offset++];
+                    delta |= (long) (current & 0x7F) << shift;
+                    shift += 7;
+                } while ((current & 0x80) != 0);
+                value += delta;
+                target[position++] = value;
+            }
+            return position;
+        }
+    }
+}
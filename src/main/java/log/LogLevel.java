@@ -20,5 +20,23 @@ public enum LogLevel
     {
         return m_iLevel;
     }
+
+    /**
+     * Возвращает уровень по имени без учёта регистра или {@code defaultLevel}, если имя не подходит.
+     */
+    public static LogLevel parse(String name, LogLevel defaultLevel)
+    {
+        if (name != null)
+        {
+            for (LogLevel level : values())
+            {
+                if (level.name().equalsIgnoreCase(name.trim()))
+                {
+                    return level;
+                }
+            }
+        }
+        return defaultLevel;
+    }
 }
 
@@ -0,0 +1,55 @@
+package log;
+
+import java.util.Map;
+
+/**
+ * Запись лога, доступная только для чтения. Её реализуют неизменяемая {@link LogEntry}
+ * и переиспользуемое представление {@link LogEntryView}, которое читатели кольца
+ * заполняют без выделения памяти.
+ */
+public interface LogRecord
+{
+    LogLevel getLevel();
+
+    String getMessage();
+
+    /**
+     * Возвращает структурированные поля записи в порядке добавления.
+     */
+    Map<String, Object> getFields();
+
+    /**
+     * Возвращает порядковый номер записи в источнике; номера растут в порядке записи во всех потоках.
+     */
+    long getSequence();
+
+    /**
+     * Возвращает время записи в наносекундах от начала эпохи.
+     */
+    long getTimestampNanos();
+
+    long getThreadId();
+
+    /**
+     * Возвращает неизменяемую запись с тем же содержимым, которую можно сохранить.
+     */
+    LogEntry copy();
+
+    /**
+     * Возвращает текст записи вместе с полями в виде {@code сообщение key=value ...}.
+     */
+    default String format()
+    {
+        Map<String, Object> fields = getFields();
+        if (fields.isEmpty())
+        {
+            return getMessage();
+        }
+        StringBuilder builder = new StringBuilder(getMessage());
+        for (Map.Entry<String, Object> field : fields.entrySet())
+        {
+            builder.append(' ').append(field.getKey()).append('=').append(field.getValue());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,475 @@
+package log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LogSegmentStore — хранилище истории лога на диске.
+ * <p>
+ * Записи пишутся в отображаемые в память файлы-сегменты фиксированного размера.
+ * Хранилище подключается к источнику через {@link LogWindowSource#attachStore(LogSegmentStore)}
+ * и получает записи в собственном потоке, а не в потоке, пишущем в лог, и не в потоке рассылки.
+ * Когда сегмент заполняется, открывается следующий, а самые старые сегменты сверх лимита удаляются.
+ * Хранилище создаёт только новые файлы и удаляет только те, что создало само, поэтому каталог
+ * должен принадлежать одному процессу (см. {@link #createRunDirectory(Path)}).
+ * Для каждого сегмента ведётся разреженный индекс (каждая {@value #INDEX_INTERVAL}-я запись)
+ * по порядковому номеру и времени, поэтому чтение истории не просматривает файл с начала.
+ * <p>
+ * Записи, не поместившиеся в сегмент целиком, отбрасываются и учитываются в {@link #overflowCount()};
+ * записи, вытесненные из памяти раньше, чем дошли до хранилища, учитывает источник.
+ * <p>
+ * Формат записи: {@code int длина | long номер | long время (нс) | long поток | byte уровень | int длина текста
+ * | UTF-8 текст | поля},
+ * где поля — пары {@code int длина | UTF-8 ключ | int длина | UTF-8 значение} до конца записи.
+ */
+public class LogSegmentStore implements LogSink, AutoCloseable {
+    /**
+     * Через сколько записей в разреженный индекс добавляется очередная точка.
+     */
+    public static final int INDEX_INTERVAL = 64;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_SIZE = Integer.BYTES + 3 * Long.BYTES + Byte.BYTES + Integer.BYTES;
+    private static final int SEQUENCE_OFFSET = 4;
+    private static final int TIMESTAMP_OFFSET = 12;
+    private static final int THREAD_OFFSET = 20;
+    private static final int LEVEL_OFFSET = 28;
+    private static final int TEXT_LENGTH_OFFSET = 29;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final boolean deleteOnClose;
+    private volatile boolean closed;
+
+    /**
+     * Создаёт хранилище в каталоге, сохраняя сегменты после закрытия.
+     *
+     * @param directory   каталог для файлов-сегментов
+     * @param segmentSize размер одного сегмента в байтах
+     * @param maxSegments сколько сегментов хранить одновременно
+     * @throws IOException если каталог недоступен
+     */
+    public LogSegmentStore(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this(directory, segmentSize, maxSegments, false);
+    }
+
+    /**
+     * Создаёт хранилище в каталоге. Файлы, уже лежащие в каталоге, не трогаются;
+     * совпадение имени с чужим сегментом — ошибка записи, а не перезапись.
+     *
+     * @param directory     каталог для файлов-сегментов
+     * @param segmentSize   размер одного сегмента в байтах
+     * @param maxSegments   сколько сегментов хранить одновременно
+     * @param deleteOnClose удалить при закрытии свои сегменты и каталог, если он опустел
+     * @throws IOException если каталог недоступен
+     */
+    public LogSegmentStore(Path directory, int segmentSize, int maxSegments, boolean deleteOnClose)
+            throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.deleteOnClose = deleteOnClose;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Создаёт внутри {@code parent} новый каталог для истории этого процесса,
+     * чтобы несколько запущенных копий приложения не писали в одни и те же файлы.
+     *
+     * @return созданный каталог вида {@code run-<pid>-<случайный суффикс>}
+     * @throws IOException если каталог не удалось создать
+     */
+    public static Path createRunDirectory(Path parent) throws IOException {
+        Files.createDirectories(parent);
+        return Files.createTempDirectory(parent, "run-" + ProcessHandle.current().pid() + "-");
+    }
+
+    /**
+     * Дописывает запись в текущий сегмент. Вызывается одним потоком — потоком хранилища в источнике.
+     *
+     * @param sequence порядковый номер записи в источнике
+     * @param entry    запись лога; после возврата не используется
+     * @return {@code true}, если запись сохранена
+     */
+    @Override
+    public boolean offer(long sequence, LogRecord entry) {
+        if (closed) {
+            overflowCount.incrementAndGet();
+            return false;
+        }
+        try {
+            return write(sequence, entry);
+        } catch (IOException e) {
+            closed = true;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Возвращает число записей, отброшенных хранилищем: слишком больших для сегмента
+     * или пришедших после закрытия.
+     */
+    public long overflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * Возвращает номер самой старой записи, доступной на диске, или -1, если записей нет.
+     */
+    public long firstSequence() {
+        for (Segment segment : segments) {
+            if (!segment.isEmpty()) {
+                return segment.firstSequence;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Возвращает номер самой новой записи, уже записанной на диск, или -1, если записей нет.
+     */
+    public long lastSequence() {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Segment segment = segments.get(i);
+            if (!segment.isEmpty()) {
+                return segment.lastSequence;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Читает до {@code count} записей, начиная с номера {@code fromSequence}.
+     *
+     * @param fromSequence номер первой нужной записи
+     * @param count        максимальное число записей
+     * @return записи в порядке номеров; пустой список, если таких записей на диске нет
+     */
+    public List<LogEntry> read(long fromSequence, int count) {
+        List<LogEntry> result = new ArrayList<>(Math.min(count, INDEX_INTERVAL * 4));
+        List<Segment> snapshot = new ArrayList<>(segments);
+        for (int i = 0; i < snapshot.size() && result.size() < count; i++) {
+            Segment segment = snapshot.get(i);
+            Segment next = i + 1 < snapshot.size() ? snapshot.get(i + 1) : null;
+            if (next != null && !next.isEmpty() && next.firstSequence <= fromSequence) {
+                continue;
+            }
+            segment.read(Math.max(fromSequence, segment.firstSequence), count - result.size(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Читает записи с заданными номерами за один проход по сегментам.
+     * Внутри сегмента чтение только продвигается вперёд, перескакивая к точке индекса,
+     * если она ближе к очередному номеру; записи, которых на диске нет, пропускаются.
+     *
+     * @param sequences номера записей по возрастанию
+     * @param from      индекс первого номера в массиве
+     * @param to        индекс за последним номером
+     * @param result    список, в который добавляются найденные записи
+     */
+    public void read(long[] sequences, int from, int to, List<LogEntry> result) {
+        List<Segment> snapshot = new ArrayList<>(segments);
+        int i = from;
+        for (int index = 0; index < snapshot.size() && i < to; index++) {
+            Segment segment = snapshot.get(index);
+            long nextFirst = index + 1 < snapshot.size() ? snapshot.get(index + 1).firstSequence : Long.MAX_VALUE;
+            while (i < to && sequences[i] < segment.firstSequence) {
+                i++;
+            }
+            int end = i;
+            while (end < to && sequences[end] < nextFirst) {
+                end++;
+            }
+            if (end > i) {
+                segment.read(sequences, i, end, result);
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * Ищет номер первой записи, сделанной не раньше заданного момента.
+     *
+     * @param timestampNanos момент времени в наносекундах от начала эпохи
+     * @return номер записи или -1, если таких записей на диске нет
+     */
+    public long findSequence(long timestampNanos) {
+        for (Segment segment : segments) {
+            if (!segment.isEmpty() && segment.lastTimestamp >= timestampNanos) {
+                return segment.findSequence(timestampNanos);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Закрывает хранилище: последующие записи отбрасываются, сегменты сбрасываются на диск,
+     * а их файлы закрываются. Прочитанная ранее история остаётся доступной, пока жив процесс.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Segment segment : segments) {
+            if (deleteOnClose) {
+                segment.delete();
+            } else {
+                segment.close();
+            }
+        }
+        if (deleteOnClose) {
+            segments.clear();
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                // в каталоге остались чужие файлы — он не наш, чтобы его удалять
+            }
+        }
+    }
+
+    private boolean write(long sequence, LogRecord entry) throws IOException {
+        byte[] text = entry.getMessage().getBytes(StandardCharsets.UTF_8);
+        byte[] fields = encodeFields(entry.getFields());
+        int size = HEADER_SIZE + text.length + fields.length;
+        if (size > segmentSize) {
+            overflowCount.incrementAndGet();
+            return false;
+        }
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || !segment.fits(size)) {
+            segment = roll(sequence);
+        }
+        segment.append(sequence, entry, text, fields);
+        return true;
+    }
+
+    private static byte[] encodeFields(Map<String, Object> fields) {
+        if (fields.isEmpty()) {
+            return new byte[0];
+        }
+        List<byte[]> parts = new ArrayList<>(fields.size() * 2);
+        int size = 0;
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            byte[] key = field.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = String.valueOf(field.getValue()).getBytes(StandardCharsets.UTF_8);
+            parts.add(key);
+            parts.add(value);
+            size += 2 * Integer.BYTES + key.length + value.length;
+        }
+        ByteBuffer encoded = ByteBuffer.allocate(size);
+        for (byte[] part : parts) {
+            encoded.putInt(part.length).put(part);
+        }
+        return encoded.array();
+    }
+
+    private static Map<String, Object> decodeFields(ByteBuffer view, int offset, int end) {
+        if (offset >= end) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        while (offset < end) {
+            byte[] key = new byte[view.getInt(offset)];
+            view.get(offset + Integer.BYTES, key);
+            offset += Integer.BYTES + key.length;
+            byte[] value = new byte[view.getInt(offset)];
+            view.get(offset + Integer.BYTES, value);
+            offset += Integer.BYTES + value.length;
+            fields.put(new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    private Segment roll(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        Segment segment = new Segment(file, firstSequence, segmentSize);
+        segments.add(segment);
+        while (segments.size() > maxSegments) {
+            segments.remove(0).delete();
+        }
+        return segment;
+    }
+
+    /**
+     * Один файл-сегмент. Пишет в него только поток хранилища;
+     * читатели видят данные до опубликованной позиции {@link #limit}.
+     */
+    private static final class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final long firstSequence;
+        private volatile int limit;
+        private volatile long lastSequence = -1;
+        private volatile long lastTimestamp;
+        private int records;
+        private long[] indexSequences = new long[16];
+        private long[] indexTimestamps = new long[16];
+        private int[] indexOffsets = new int[16];
+        private int indexSize;
+
+        Segment(Path file, long firstSequence, int size) throws IOException {
+            this.file = file;
+            this.firstSequence = firstSequence;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        boolean fits(int size) {
+            return limit + size <= buffer.capacity();
+        }
+
+        boolean isEmpty() {
+            return limit == 0;
+        }
+
+        void append(long sequence, LogRecord entry, byte[] text, byte[] fields) {
+            int offset = limit;
+            long timestamp = entry.getTimestampNanos();
+            if (records % INDEX_INTERVAL == 0) {
+                addIndexPoint(sequence, timestamp, offset);
+            }
+            buffer.putInt(offset, HEADER_SIZE - Integer.BYTES + text.length + fields.length);
+            buffer.putLong(offset + SEQUENCE_OFFSET, sequence);
+            buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+            buffer.putLong(offset + THREAD_OFFSET, entry.getThreadId());
+            buffer.put(offset + LEVEL_OFFSET, (byte) entry.getLevel().ordinal());
+            buffer.putInt(offset + TEXT_LENGTH_OFFSET, text.length);
+            buffer.put(offset + HEADER_SIZE, text);
+            buffer.put(offset + HEADER_SIZE + text.length, fields);
+            records++;
+            lastSequence = sequence;
+            lastTimestamp = timestamp;
+            limit = offset + HEADER_SIZE + text.length + fields.length;
+        }
+
+        private synchronized void addIndexPoint(long sequence, long timestamp, int offset) {
+            if (indexSize == indexOffsets.length) {
+                indexSequences = Arrays.copyOf(indexSequences, indexSize * 2);
+                indexTimestamps = Arrays.copyOf(indexTimestamps, indexSize * 2);
+                indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+            }
+            indexSequences[indexSize] = sequence;
+            indexTimestamps[indexSize] = timestamp;
+            indexOffsets[indexSize] = offset;
+            indexSize++;
+        }
+
+        /**
+         * Возвращает смещение ближайшей точки индекса, не превосходящей ключ.
+         */
+        private synchronized int floorOffset(long key, boolean byTimestamp) {
+            long[] keys = byTimestamp ? indexTimestamps : indexSequences;
+            int low = 0;
+            int high = indexSize - 1;
+            int found = 0;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] <= key) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return indexSize == 0 ? 0 : indexOffsets[found];
+        }
+
+        void read(long fromSequence, int count, List<LogEntry> result) {
+            int end = limit;
+            ByteBuffer view = buffer.duplicate();
+            int offset = floorOffset(fromSequence, false);
+            int added = 0;
+            while (offset < end && added < count) {
+                int length = view.getInt(offset);
+                long sequence = view.getLong(offset + SEQUENCE_OFFSET);
+                if (sequence >= fromSequence) {
+                    result.add(decode(view, offset, length, sequence));
+                    added++;
+                }
+                offset += Integer.BYTES + length;
+            }
+        }
+
+        private static LogEntry decode(ByteBuffer view, int offset, int length, long sequence) {
+            LogLevel level = LogLevel.values()[view.get(offset + LEVEL_OFFSET)];
+            byte[] text = new byte[view.getInt(offset + TEXT_LENGTH_OFFSET)];
+            view.get(offset + HEADER_SIZE, text);
+            Map<String, Object> fields = decodeFields(view, offset + HEADER_SIZE + text.length,
+                    offset + Integer.BYTES + length);
+            return new LogEntry(level, new String(text, StandardCharsets.UTF_8), fields, sequence,
+                    view.getLong(offset + TIMESTAMP_OFFSET), view.getLong(offset + THREAD_OFFSET));
+        }
+
+        void read(long[] sequences, int from, int to, List<LogEntry> result) {
+            int end = limit;
+            ByteBuffer view = buffer.duplicate();
+            int offset = 0;
+            for (int i = from; i < to && offset < end; i++) {
+                long wanted = sequences[i];
+                offset = Math.max(offset, floorOffset(wanted, false));
+                while (offset < end) {
+                    int length = view.getInt(offset);
+                    long sequence = view.getLong(offset + SEQUENCE_OFFSET);
+                    if (sequence >= wanted) {
+                        if (sequence == wanted) {
+                            result.add(decode(view, offset, length, sequence));
+                        }
+                        break;
+                    }
+                    offset += Integer.BYTES + length;
+                }
+            }
+        }
+
+        long findSequence(long timestampNanos) {
+            int end = limit;
+            ByteBuffer view = buffer.duplicate();
+            int offset = floorOffset(timestampNanos, true);
+            while (offset < end) {
+                if (view.getLong(offset + TIMESTAMP_OFFSET) >= timestampNanos) {
+                    return view.getLong(offset + SEQUENCE_OFFSET);
+                }
+                offset += Integer.BYTES + view.getInt(offset);
+            }
+            return -1;
+        }
+
+        void close() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                // сбросить не удалось — данные останутся в отображении до выхода процесса
+            }
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // не удалось удалить — файл останется в каталоге этого запуска
+            }
+        }
+    }
+}
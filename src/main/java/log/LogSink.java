@@ -0,0 +1,19 @@
+package log;
+
+/**
+ * Получатель всех записей источника лога (хранилище на диске, поисковый индекс и т. п.).
+ * Вызывается в потоке рассылки (хранилище на диске — в собственном потоке, см. {@link LogSinkWorker})
+ * строго в порядке номеров; переданную запись нельзя сохранять,
+ * так как это переиспользуемое представление; для хранения есть {@link LogRecord#copy()}.
+ */
+public interface LogSink
+{
+    /**
+     * Передаёт запись получателю.
+     *
+     * @param sequence порядковый номер записи в источнике
+     * @param entry    запись лога
+     * @return {@code true}, если запись принята, и {@code false}, если отброшена
+     */
+    boolean offer(long sequence, LogRecord entry);
+}
@@ -0,0 +1,102 @@
+package log;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LogSinkWorker — передаёт записи источника одному медленному получателю в собственном потоке.
+ * <p>
+ * Поток рассылки только сообщает, до какого номера дошёл лог, и не ждёт получателя,
+ * поэтому запись на диск и открытие сегментов {@link LogSegmentStore} не задерживают
+ * уведомления слушателей. Рабочий поток читает записи из кольца в своё представление строго
+ * в порядке номеров; записи, вытесненные раньше, чем до них дошла очередь, учитывает источник.
+ * Если получатель бросил {@link UncheckedIOException}, он отключается, а сбой записывается в тот же лог.
+ */
+final class LogSinkWorker {
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final LogWindowSource source;
+    private final LogSink sink;
+    private final LogEntryView view = new LogEntryView();
+    private final ExecutorService executor;
+    private final AtomicLong target;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /**
+     * Номер следующей записи для получателя. Меняется только под блокировкой работника.
+     */
+    private long sequence;
+    private volatile boolean disabled;
+
+    /**
+     * @param source       источник записей
+     * @param sink         получатель
+     * @param threadName   имя рабочего потока
+     * @param fromSequence номер первой записи, которую получит получатель
+     */
+    LogSinkWorker(LogWindowSource source, LogSink sink, String threadName, long fromSequence) {
+        this.source = source;
+        this.sink = sink;
+        this.sequence = fromSequence;
+        this.target = new AtomicLong(fromSequence);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Сообщает, что опубликованы записи с номерами до {@code toSequence} (не включительно). Не блокирует.
+     */
+    void wake(long toSequence) {
+        target.accumulateAndGet(toSequence, Math::max);
+        if (!disabled && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        // Сбрасываем флаг до чтения цели, чтобы не потерять пробуждение во время передачи
+        scheduled.set(false);
+        drainTo(target.get());
+    }
+
+    /**
+     * Передаёт получателю записи до {@code toSequence} в вызывающем потоке.
+     */
+    synchronized void drainTo(long toSequence) {
+        for (; sequence < toSequence && !disabled; sequence++) {
+            if (!source.readPublished(sequence, view)) {
+                source.countDropped();
+                continue;
+            }
+            try {
+                sink.offer(sequence, view);
+            } catch (UncheckedIOException e) {
+                disabled = true;
+                source.at(LogLevel.Error)
+                        .with("sink", sink.getClass().getSimpleName())
+                        .with("error", String.valueOf(e.getCause()))
+                        .log("Log sink failed and is disabled");
+            }
+        }
+    }
+
+    /**
+     * Передаёт получателю все записи до {@code toSequence} и останавливает рабочий поток.
+     */
+    void close(long toSequence) {
+        drainTo(toSequence);
+        disabled = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
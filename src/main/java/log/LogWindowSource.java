@@ -1,8 +1,14 @@
 package log;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 1. Этот класс больше не порождает утечку ресурсов (связанные слушатели оказываются
@@ -13,18 +19,74 @@ import java.util.WeakHashMap;
  *  3) должна быть возможность доступа к части данных (сегмент смежных записей)
  * по индексам начала и конца (такая операция, по идее, нужна для
  * эффективного отображения данных в окне, чтобы не читать полный лог)
+ * 3. Слушатели уведомляются асинхронно и пачками (см. {@link LogDispatcher}),
+ * поэтому поток, пишущий в лог, не ждёт перерисовки окон
+ * 4. Если подключено {@link LogSegmentStore}, каждая запись дополнительно уходит на диск
+ * в отдельном потоке ({@link LogSinkWorker}), и вытесненные из буфера записи остаются доступны
+ * через {@link #history(long, int)}
+ * 5. Записи ниже минимального уровня источника отбрасываются сразу; проверка
+ * {@link #isEnabled(LogLevel)} позволяет вызывающему не формировать такие сообщения вовсе
+ * 6. Каждая запись передаётся подключённым {@link LogSink} (хранилище, поисковый индекс)
+ * в потоке рассылки уведомлений, строго в порядке номеров
+ * 7. Записи хранятся в заранее выделенных ячейках {@link LogEntryRing} и при записи
+ * не создают объектов; читатели получают копии или переиспользуемые {@link LogEntryView}
+ * 8. Если подключён {@link LogFloodGuard}, поток одинаковых сообщений не вытесняет из буфера
+ * полезные записи: повторы сворачиваются, а частота каждого шаблона ограничена
  */
 public class LogWindowSource
 {
 
-    private final CircleBuffer<LogEntry> m_messages;
+    private final LogEntryRing m_messages;
     private final Set<LogChangeListener> m_listeners;
     private volatile LogChangeListener[] m_activeListeners;
+    private final LogDispatcher m_dispatcher;
+    /**
+     * Представление для передачи записей получателям; используется только под собственной блокировкой.
+     */
+    private final LogEntryView m_sinkView = new LogEntryView();
+    private long m_sinkSequence;
+    private final AtomicLong m_droppedCount = new AtomicLong();
+    private volatile LogSegmentStore m_store;
+    private volatile LogSinkWorker m_storeWorker;
+    private volatile LogIndex m_index;
+    private final List<LogSink> m_sinks = new CopyOnWriteArrayList<>();
+    private volatile LogLevel m_minLevel = LogLevel.Trace;
+    private volatile LogFloodGuard m_floodGuard;
+
+    /**
+     * Интервал рассылки уведомлений по умолчанию, мс.
+     */
+    public static final long DEFAULT_DISPATCH_INTERVAL_MILLIS = 50;
+    /**
+     * Число записей, после которого уведомление отправляется, не дожидаясь конца интервала.
+     */
+    public static final int DEFAULT_DISPATCH_BATCH = 4096;
 
     public LogWindowSource(int iQueueLength)
     {
-        this.m_messages = new CircleBuffer<>(iQueueLength);
+        this(iQueueLength, LogBufferType.fromSystemProperty());
+    }
+
+    public LogWindowSource(int iQueueLength, LogBufferType bufferType)
+    {
+        this(iQueueLength, bufferType, DEFAULT_DISPATCH_INTERVAL_MILLIS, DEFAULT_DISPATCH_BATCH);
+    }
+
+    /**
+     * @param iQueueLength           ёмкость буфера сообщений
+     * @param bufferType             способ занятия ячеек буфера писателями
+     * @param dispatchIntervalMillis минимальный интервал между уведомлениями слушателей;
+     *                               0 — уведомлять синхронно при каждой записи
+     * @param dispatchBatch          число записей, после которого уведомление уходит досрочно
+     */
+    public LogWindowSource(int iQueueLength, LogBufferType bufferType,
+                           long dispatchIntervalMillis, int dispatchBatch)
+    {
+        this.m_messages = new LogEntryRing(iQueueLength, bufferType);
         m_listeners = Collections.newSetFromMap(new WeakHashMap<>());
+        m_dispatcher = dispatchIntervalMillis > 0
+                ? new LogDispatcher(this, dispatchIntervalMillis, dispatchBatch)
+                : null;
     }
 
     public void registerListener(LogChangeListener listener)
@@ -45,10 +107,211 @@ public class LogWindowSource
         }
     }
 
+    /**
+     * Устанавливает минимальный уровень записей, которые принимает источник.
+     */
+    public void setMinLevel(LogLevel minLevel)
+    {
+        m_minLevel = minLevel;
+    }
+
+    public LogLevel getMinLevel()
+    {
+        return m_minLevel;
+    }
+
+    public boolean isEnabled(LogLevel logLevel)
+    {
+        return logLevel.level() >= m_minLevel.level();
+    }
+
+    /**
+     * Начинает запись со структурированными полями. Для выключенного уровня
+     * возвращает {@link LogEventBuilder#DISABLED} и ничего не выделяет.
+     */
+    public LogEventBuilder at(LogLevel logLevel)
+    {
+        return isEnabled(logLevel) ? new LogEvent(this, logLevel) : LogEventBuilder.DISABLED;
+    }
+
     public void append(LogLevel logLevel, String strMessage)
     {
-        LogEntry entry = new LogEntry(logLevel, strMessage);
-        m_messages.add(entry);
+        append(logLevel, strMessage, Collections.emptyMap());
+    }
+
+    public void append(LogLevel logLevel, String strMessage, Map<String, Object> fields)
+    {
+        append(logLevel, strMessage, strMessage, fields);
+    }
+
+    /**
+     * Добавляет запись, сформированную по шаблону. Если подключён {@link LogFloodGuard},
+     * частота записей ограничивается отдельно для каждого шаблона, а подряд идущие
+     * одинаковые записи сворачиваются в одну итоговую.
+     *
+     * @param template   шаблон сообщения, по которому ведётся учёт частоты
+     * @param strMessage готовый текст сообщения
+     */
+    public void append(LogLevel logLevel, String template, String strMessage, Map<String, Object> fields)
+    {
+        if (!isEnabled(logLevel))
+        {
+            return;
+        }
+        LogFloodGuard floodGuard = m_floodGuard;
+        if (floodGuard != null)
+        {
+            if (floodGuard.absorbRepeat(logLevel, strMessage, fields))
+            {
+                if (m_dispatcher != null)
+                {
+                    // рассылка отчитается о повторах, даже если новых записей больше не будет
+                    m_dispatcher.markDirty(m_messages.tailSequence());
+                }
+                return;
+            }
+            long now = LogClock.nowNanos();
+            long suppressed = floodGuard.acquire(template, now);
+            if (suppressed < 0)
+            {
+                // отброшенная запись не попадает в лог и поэтому не прерывает текущую серию повторов
+                return;
+            }
+            publish(floodGuard.startRun(logLevel, strMessage, fields, now));
+            if (suppressed > 0)
+            {
+                Map<String, Object> withSuppressed = new LinkedHashMap<>(fields);
+                withSuppressed.put(LogFloodGuard.SUPPRESSED_FIELD, suppressed);
+                fields = Collections.unmodifiableMap(withSuppressed);
+            }
+        }
+        publish(logLevel, strMessage, fields);
+    }
+
+    private void publish(LogEntry entry)
+    {
+        if (entry != null)
+        {
+            publish(entry.getLevel(), entry.getMessage(), entry.getFields());
+        }
+    }
+
+    private void publish(LogLevel logLevel, String strMessage, Map<String, Object> fields)
+    {
+        long appendedCount = m_messages.publish(logLevel, strMessage, fields) + 1;
+        if (m_dispatcher != null)
+        {
+            m_dispatcher.markDirty(appendedCount);
+        }
+        else
+        {
+            feedSinks(appendedCount);
+            notifyListeners(appendedCount - 1, appendedCount);
+        }
+    }
+
+    /**
+     * Добавляет итоговую запись о повторах, если продолжающаяся серия давно не отчитывалась.
+     * Вызывается потоком рассылки.
+     *
+     * @return {@code true}, если у серии остались неотчитанные повторы
+     */
+    boolean reportRepeats()
+    {
+        LogFloodGuard floodGuard = m_floodGuard;
+        if (floodGuard == null)
+        {
+            return false;
+        }
+        publish(floodGuard.reportRepeats(LogClock.nowNanos()));
+        return floodGuard.hasPendingRepeats();
+    }
+
+    /**
+     * Подключает защиту от потока одинаковых сообщений; {@code null} отключает её.
+     */
+    public void setFloodGuard(LogFloodGuard floodGuard)
+    {
+        m_floodGuard = floodGuard;
+    }
+
+    public LogFloodGuard getFloodGuard()
+    {
+        return m_floodGuard;
+    }
+
+    /**
+     * Возвращает число записей, не попавших в лог из-за {@link LogFloodGuard}:
+     * свёрнутых повторов и отброшенных ограничением частоты.
+     */
+    public long suppressedCount()
+    {
+        LogFloodGuard floodGuard = m_floodGuard;
+        return floodGuard != null ? floodGuard.collapsedCount() + floodGuard.rateLimitedCount() : 0;
+    }
+
+    /**
+     * Передаёт получателям записи с номерами до {@code toSequence} (не включительно), которые они ещё не видели.
+     * Записи, вытесненные из кольца раньше, чем до них дошла очередь, учитываются в {@link #droppedCount()}.
+     */
+    void feedSinks(long toSequence)
+    {
+        LogSinkWorker storeWorker = m_storeWorker;
+        if (storeWorker != null)
+        {
+            storeWorker.wake(toSequence);
+        }
+        if (m_sinks.isEmpty())
+        {
+            return;
+        }
+        synchronized (m_sinkView)
+        {
+            long sequence = m_sinkSequence;
+            for (; sequence < toSequence; sequence++)
+            {
+                if (!readPublished(sequence, m_sinkView))
+                {
+                    countDropped();
+                    continue;
+                }
+                for (LogSink sink : m_sinks)
+                {
+                    sink.offer(sequence, m_sinkView);
+                }
+            }
+            m_sinkSequence = Math.max(m_sinkSequence, sequence);
+        }
+    }
+
+    /**
+     * Читает запись, при необходимости дожидаясь, пока писатель, уже занявший ячейку, допишет её.
+     *
+     * @return {@code false}, если запись вытеснена
+     */
+    boolean readPublished(long sequence, LogEntryView view)
+    {
+        while (!m_messages.read(sequence, view))
+        {
+            if (sequence < m_messages.headSequence())
+            {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    void countDropped()
+    {
+        m_droppedCount.incrementAndGet();
+    }
+
+    /**
+     * Уведомляет слушателей о записях с номерами из диапазона [fromSequence, toSequence).
+     */
+    void notifyListeners(long fromSequence, long toSequence)
+    {
         LogChangeListener [] activeListeners = m_activeListeners;
         if (activeListeners == null)
         {
@@ -59,27 +322,266 @@ public class LogWindowSource
                     activeListeners = m_listeners.toArray(new LogChangeListener [0]);
                     m_activeListeners = activeListeners;
                 }
+                else
+                {
+                    activeListeners = m_activeListeners;
+                }
             }
         }
         for (LogChangeListener listener : activeListeners)
         {
-            listener.onLogChanged();
+            listener.onLogChanged(fromSequence, toSequence);
         }
     }
 
+    /**
+     * Возвращает общее число записей, добавленных за всё время работы источника.
+     * Оно же — порядковый номер следующей записи.
+     */
+    public long appendedCount()
+    {
+        return m_messages.tailSequence();
+    }
+
+    /**
+     * Возвращает число записей, которые не дошли до получателей, потому что были вытеснены раньше.
+     */
+    public long droppedCount()
+    {
+        return m_droppedCount.get();
+    }
+
     public int size() {
         return m_messages.size();
     }
 
+    /**
+     * Копирует запись с заданным номером в переиспользуемое представление, ничего не выделяя.
+     *
+     * @return {@code false}, если запись ещё не опубликована или уже вытеснена из памяти
+     */
+    public boolean read(long sequence, LogEntryView view)
+    {
+        return m_messages.read(sequence, view);
+    }
+
     public Iterable<LogEntry> range(int startFrom, int count) {
-        if (startFrom < 0 || startFrom >= m_messages.size()) {
+        long head = m_messages.headSequence();
+        long tail = m_messages.tailSequence();
+        if (startFrom < 0 || head + startFrom >= tail) {
             return Collections.emptyList();
         }
-        int toIndex = Math.min(startFrom + count, m_messages.size());
-        return m_messages.getRange(startFrom, toIndex);
+        return copyRange(head + startFrom, Math.min(head + startFrom + count, tail));
     }
 
     public Iterable<LogEntry> all() {
-        return m_messages;
+        return copyRange(m_messages.headSequence(), m_messages.tailSequence());
+    }
+
+    private List<LogEntry> copyRange(long fromSequence, long toSequence)
+    {
+        List<LogEntry> result = new ArrayList<>((int) Math.max(0, toSequence - fromSequence));
+        m_messages.readRange(fromSequence, toSequence, result);
+        return result;
+    }
+
+    /**
+     * Подключает хранилище истории на диске. Записи, добавленные до подключения, в него не попадают.
+     * Хранилище получает записи в собственном потоке, чтобы дисковый ввод-вывод не задерживал рассылку;
+     * при ошибке записи оно отключается, а сбой записывается в лог.
+     */
+    public void attachStore(LogSegmentStore store)
+    {
+        m_store = store;
+        m_storeWorker = new LogSinkWorker(this, store, "LogSegmentStore", m_messages.tailSequence());
+    }
+
+    /**
+     * Подключает получателя, которому будут передаваться все последующие записи.
+     * Получатель вызывается в потоке рассылки и не должен сохранять переданное представление записи.
+     */
+    public void addSink(LogSink sink)
+    {
+        synchronized (m_sinkView)
+        {
+            if (m_sinks.isEmpty())
+            {
+                m_sinkSequence = m_messages.tailSequence();
+            }
+            m_sinks.add(sink);
+        }
+    }
+
+    /**
+     * Отчитывается о незавершённой серии повторов и дописывает получателям
+     * все уже опубликованные записи в вызывающем потоке.
+     * Нужен при завершении работы, чтобы не ждать очередной рассылки.
+     */
+    public void flush()
+    {
+        LogFloodGuard floodGuard = m_floodGuard;
+        if (floodGuard != null)
+        {
+            publish(floodGuard.closeRun());
+        }
+        feedSinks(m_messages.tailSequence());
+        LogSinkWorker storeWorker = m_storeWorker;
+        if (storeWorker != null)
+        {
+            storeWorker.drainTo(m_messages.tailSequence());
+        }
+    }
+
+    /**
+     * Завершает работу источника: отчитывается о незавершённой серии повторов, последний раз
+     * передаёт записи получателям и уведомляет слушателей. После закрытия записи по-прежнему
+     * попадают в буфер, но асинхронная рассылка уведомлений прекращается.
+     */
+    public void close()
+    {
+        LogFloodGuard floodGuard = m_floodGuard;
+        if (floodGuard != null)
+        {
+            publish(floodGuard.closeRun());
+        }
+        if (m_dispatcher != null)
+        {
+            m_dispatcher.close();
+        }
+        else
+        {
+            feedSinks(m_messages.tailSequence());
+        }
+        LogSinkWorker storeWorker = m_storeWorker;
+        if (storeWorker != null)
+        {
+            storeWorker.close(m_messages.tailSequence());
+        }
+    }
+
+    /**
+     * Создаёт и подключает поисковый индекс по записям источника.
+     */
+    public LogIndex enableIndex()
+    {
+        LogIndex index = new LogIndex(this);
+        addSink(index);
+        m_index = index;
+        return index;
+    }
+
+    /**
+     * Возвращает поисковый индекс или {@code null}, если он не включён.
+     */
+    public LogIndex getIndex()
+    {
+        return m_index;
+    }
+
+    /**
+     * Ищет записи, содержащие все слова запроса, среди записей указанных уровней.
+     *
+     * @return номера найденных записей по возрастанию; пустой массив, если индекс не включён
+     */
+    public long[] search(String text, Set<LogLevel> levels, int limit)
+    {
+        LogIndex index = m_index;
+        return index != null ? index.search(text, levels, limit) : new long[0];
+    }
+
+    /**
+     * Ищет записи, как {@link #search(String, Set, int)}, но только с номерами не меньше {@code fromSequence}.
+     * Позволяет дополнять результаты прошлого поиска новыми записями, не повторяя поиск по всему индексу.
+     */
+    public long[] search(String text, Set<LogLevel> levels, long fromSequence, int limit)
+    {
+        LogIndex index = m_index;
+        return index != null ? index.search(text, levels, fromSequence, limit) : new long[0];
+    }
+
+    /**
+     * Возвращает номер, до которого (не включительно) записи уже видны поиску; 0, если индекс не включён.
+     */
+    public long indexedCount()
+    {
+        LogIndex index = m_index;
+        return index != null ? index.indexedCount() : 0;
+    }
+
+    public LogSegmentStore getStore()
+    {
+        return m_store;
+    }
+
+    /**
+     * Возвращает номер самой старой записи, которую ещё можно прочитать через {@link #history(long, int)}:
+     * из хранилища на диске, если оно подключено, иначе из буфера в памяти.
+     */
+    public long firstSequence()
+    {
+        long memoryHead = m_messages.headSequence();
+        LogSegmentStore store = m_store;
+        long storeHead = store != null ? store.firstSequence() : -1;
+        return storeHead >= 0 ? Math.min(storeHead, memoryHead) : memoryHead;
+    }
+
+    /**
+     * Возвращает до {@code count} записей, начиная с порядкового номера {@code fromSequence}.
+     * Записи, ещё находящиеся в буфере, читаются из памяти, более старые — из хранилища на диске.
+     * <p>
+     * Номера в результате идут по возрастанию, но могут идти с пропусками: запись могла не дойти
+     * до хранилища (вытеснена раньше или не поместилась в сегмент) или быть вытеснена во время чтения.
+     * Поэтому позицию записи нужно определять по {@link LogEntry#getSequence()}, а не по индексу в списке.
+     */
+    public List<LogEntry> history(long fromSequence, int count)
+    {
+        List<LogEntry> result = new ArrayList<>(count);
+        long memoryHead = m_messages.headSequence();
+        LogSegmentStore store = m_store;
+        if (fromSequence < memoryHead && store != null)
+        {
+            result.addAll(store.read(fromSequence, (int) Math.min(count, memoryHead - fromSequence)));
+            fromSequence = memoryHead;
+        }
+        if (result.size() < count && fromSequence >= memoryHead)
+        {
+            long toSequence = Math.min(fromSequence + count - result.size(), m_messages.tailSequence());
+            result.addAll(copyRange(fromSequence, toSequence));
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает записи с номерами {@code sequences[from] ... sequences[from + count - 1]} одним обращением:
+     * номера из буфера читаются из памяти, остальные — за один проход по хранилищу на диске.
+     * Записи, которых уже нет, пропускаются; результат, как и у {@link #history(long, int)},
+     * нужно сопоставлять по {@link LogEntry#getSequence()}.
+     *
+     * @param sequences номера записей по возрастанию
+     */
+    public List<LogEntry> history(long[] sequences, int from, int count)
+    {
+        int to = Math.min(sequences.length, from + count);
+        List<LogEntry> result = new ArrayList<>(Math.max(0, to - from));
+        long memoryHead = m_messages.headSequence();
+        int inMemory = from;
+        while (inMemory < to && sequences[inMemory] < memoryHead)
+        {
+            inMemory++;
+        }
+        LogSegmentStore store = m_store;
+        if (inMemory > from && store != null)
+        {
+            store.read(sequences, from, inMemory, result);
+        }
+        LogEntryView view = new LogEntryView();
+        for (int i = inMemory; i < to; i++)
+        {
+            if (m_messages.read(sequences[i], view))
+            {
+                result.add(view.copy());
+            }
+        }
+        return result;
     }
 }
@@ -1,24 +1,290 @@
 package log;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+/**
+ * Точка входа для записи в лог приложения.
+ * <p>
+ * Для каждого уровня есть перегрузки с готовой строкой, с {@link Supplier} и с шаблоном
+ * {@code "текст {} текст {}"}. Шаблон форматируется, а {@link Supplier} вызывается, только если
+ * уровень включён в источнике по умолчанию, поэтому выключенные trace/debug-вызовы
+ * на горячем пути сводятся к одной проверке уровня.
+ * Записи со структурированными полями строятся через {@link #at(LogLevel)}.
+ */
 public final class Logger
 {
+    /**
+     * Каталог для истории лога на диске; каждый запуск пишет в свой подкаталог и оставляет его после выхода.
+     * Без свойства история пишется во временный каталог процесса и удаляется при выходе;
+     * пустое значение отключает хранилище.
+     */
+    public static final String STORE_DIRECTORY_PROPERTY = "robots.log.dir";
+    /**
+     * Минимальный уровень записей источника по умолчанию ({@code Trace} ... {@code Fatal}).
+     */
+    public static final String LEVEL_PROPERTY = "robots.log.level";
+    /**
+     * Допустимая частота записей одного шаблона в секунду; 0 отключает защиту от потока сообщений.
+     * Подряд разрешается вдвое больше записей.
+     */
+    public static final String RATE_PROPERTY = "robots.log.rate";
+    private static final double DEFAULT_RATE = 100;
+
     private static final LogWindowSource defaultLogSource;
     static {
-        defaultLogSource = new LogWindowSource(5);
+        defaultLogSource = new LogWindowSource(1 << 16);
+        defaultLogSource.setMinLevel(LogLevel.parse(System.getProperty(LEVEL_PROPERTY), LogLevel.Debug));
+        defaultLogSource.enableIndex();
+        double rate = parseRate(System.getProperty(RATE_PROPERTY));
+        if (rate > 0)
+        {
+            defaultLogSource.setFloodGuard(new LogFloodGuard(rate, (int) Math.max(1, 2 * rate)));
+        }
+        String directory = System.getProperty(STORE_DIRECTORY_PROPERTY);
+        if (directory == null || !directory.isBlank())
+        {
+            try
+            {
+                LogSegmentStore store = directory == null
+                        ? new LogSegmentStore(Files.createTempDirectory("robots-log-"), 4 << 20, 16, true)
+                        : new LogSegmentStore(LogSegmentStore.createRunDirectory(Path.of(directory.trim())),
+                                4 << 20, 16);
+                defaultLogSource.attachStore(store);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    defaultLogSource.close();
+                    store.close();
+                }, "LogSegmentStoreShutdown"));
+            }
+            catch (IOException e)
+            {
+                System.err.println("Log history is disabled: " + e.getMessage());
+            }
+        }
     }
     
     private Logger()
     {
     }
 
+    private static double parseRate(String value)
+    {
+        if (value == null || value.isBlank())
+        {
+            return DEFAULT_RATE;
+        }
+        try
+        {
+            return Double.parseDouble(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            return DEFAULT_RATE;
+        }
+    }
+
+    public static boolean isEnabled(LogLevel logLevel)
+    {
+        return defaultLogSource.isEnabled(logLevel);
+    }
+
+    /**
+     * Начинает запись со структурированными полями:
+     * {@code Logger.at(LogLevel.Info).with("robot", id).log("arrived")}.
+     */
+    public static LogEventBuilder at(LogLevel logLevel)
+    {
+        return defaultLogSource.at(logLevel);
+    }
+
+    public static void log(LogLevel logLevel, String strMessage)
+    {
+        defaultLogSource.append(logLevel, strMessage);
+    }
+
+    public static void log(LogLevel logLevel, Supplier<String> message)
+    {
+        if (defaultLogSource.isEnabled(logLevel))
+        {
+            defaultLogSource.append(logLevel, message.get());
+        }
+    }
+
+    public static void log(LogLevel logLevel, String pattern, Object arg)
+    {
+        if (defaultLogSource.isEnabled(logLevel))
+        {
+            defaultLogSource.append(logLevel, pattern, MessageFormatter.format(pattern, arg), Collections.emptyMap());
+        }
+    }
+
+    public static void log(LogLevel logLevel, String pattern, Object arg1, Object arg2)
+    {
+        if (defaultLogSource.isEnabled(logLevel))
+        {
+            defaultLogSource.append(logLevel, pattern, MessageFormatter.format(pattern, arg1, arg2), Collections.emptyMap());
+        }
+    }
+
+    public static void log(LogLevel logLevel, String pattern, Object... args)
+    {
+        if (defaultLogSource.isEnabled(logLevel))
+        {
+            defaultLogSource.append(logLevel, pattern, MessageFormatter.format(pattern, args), Collections.emptyMap());
+        }
+    }
+
+    public static void trace(String strMessage)
+    {
+        log(LogLevel.Trace, strMessage);
+    }
+
+    public static void trace(Supplier<String> message)
+    {
+        log(LogLevel.Trace, message);
+    }
+
+    public static void trace(String pattern, Object arg)
+    {
+        log(LogLevel.Trace, pattern, arg);
+    }
+
+    public static void trace(String pattern, Object arg1, Object arg2)
+    {
+        log(LogLevel.Trace, pattern, arg1, arg2);
+    }
+
+    public static void trace(String pattern, Object... args)
+    {
+        log(LogLevel.Trace, pattern, args);
+    }
+
     public static void debug(String strMessage)
     {
-        defaultLogSource.append(LogLevel.Debug, strMessage);
+        log(LogLevel.Debug, strMessage);
     }
-    
+
+    public static void debug(Supplier<String> message)
+    {
+        log(LogLevel.Debug, message);
+    }
+
+    public static void debug(String pattern, Object arg)
+    {
+        log(LogLevel.Debug, pattern, arg);
+    }
+
+    public static void debug(String pattern, Object arg1, Object arg2)
+    {
+        log(LogLevel.Debug, pattern, arg1, arg2);
+    }
+
+    public static void debug(String pattern, Object... args)
+    {
+        log(LogLevel.Debug, pattern, args);
+    }
+
+    public static void info(String strMessage)
+    {
+        log(LogLevel.Info, strMessage);
+    }
+
+    public static void info(Supplier<String> message)
+    {
+        log(LogLevel.Info, message);
+    }
+
+    public static void info(String pattern, Object arg)
+    {
+        log(LogLevel.Info, pattern, arg);
+    }
+
+    public static void info(String pattern, Object arg1, Object arg2)
+    {
+        log(LogLevel.Info, pattern, arg1, arg2);
+    }
+
+    public static void info(String pattern, Object... args)
+    {
+        log(LogLevel.Info, pattern, args);
+    }
+
+    public static void warning(String strMessage)
+    {
+        log(LogLevel.Warning, strMessage);
+    }
+
+    public static void warning(Supplier<String> message)
+    {
+        log(LogLevel.Warning, message);
+    }
+
+    public static void warning(String pattern, Object arg)
+    {
+        log(LogLevel.Warning, pattern, arg);
+    }
+
+    public static void warning(String pattern, Object arg1, Object arg2)
+    {
+        log(LogLevel.Warning, pattern, arg1, arg2);
+    }
+
+    public static void warning(String pattern, Object... args)
+    {
+        log(LogLevel.Warning, pattern, args);
+    }
+
     public static void error(String strMessage)
     {
-        defaultLogSource.append(LogLevel.Error, strMessage);
+        log(LogLevel.Error, strMessage);
+    }
+
+    public static void error(Supplier<String> message)
+    {
+        log(LogLevel.Error, message);
+    }
+
+    public static void error(String pattern, Object arg)
+    {
+        log(LogLevel.Error, pattern, arg);
+    }
+
+    public static void error(String pattern, Object arg1, Object arg2)
+    {
+        log(LogLevel.Error, pattern, arg1, arg2);
+    }
+
+    public static void error(String pattern, Object... args)
+    {
+        log(LogLevel.Error, pattern, args);
+    }
+
+    public static void fatal(String strMessage)
+    {
+        log(LogLevel.Fatal, strMessage);
+    }
+
+    public static void fatal(Supplier<String> message)
+    {
+        log(LogLevel.Fatal, message);
+    }
+
+    public static void fatal(String pattern, Object arg)
+    {
+        log(LogLevel.Fatal, pattern, arg);
+    }
+
+    public static void fatal(String pattern, Object arg1, Object arg2)
+    {
+        log(LogLevel.Fatal, pattern, arg1, arg2);
+    }
+
+    public static void fatal(String pattern, Object... args)
+    {
+        log(LogLevel.Fatal, pattern, args);
     }
 
     public static LogWindowSource getDefaultLogSource()
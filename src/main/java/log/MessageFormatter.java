@@ -0,0 +1,31 @@
+package log;
+
+/**
+ * Подстановка аргументов в шаблон сообщения лога.
+ * Каждое вхождение {@code {}} заменяется очередным аргументом; лишние аргументы игнорируются,
+ * недостающие оставляют {@code {}} в тексте.
+ */
+final class MessageFormatter
+{
+    private MessageFormatter()
+    {
+    }
+
+    static String format(String pattern, Object... args)
+    {
+        if (pattern == null || args == null || args.length == 0)
+        {
+            return pattern;
+        }
+        StringBuilder builder = new StringBuilder(pattern.length() + 16 * args.length);
+        int argIndex = 0;
+        int from = 0;
+        int placeholder;
+        while (argIndex < args.length && (placeholder = pattern.indexOf("{}", from)) >= 0)
+        {
+            builder.append(pattern, from, placeholder).append(args[argIndex++]);
+            from = placeholder + 2;
+        }
+        return builder.append(pattern, from, pattern.length()).toString();
+    }
+}
@@ -0,0 +1,273 @@
+package logic;
+
+import log.LogLevel;
+import log.Logger;
+import model.DefaultControlLaw;
+import model.RobotFleet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетный прогон сценариев без интерфейса.
+ * <p>
+ * Каждый {@link Scenario} — независимый мир: парк роботов {@link RobotFleet} со стандартным законом
+ * управления и скоростями сценария (тот же закон, что {@link model.ExternalRobotModel#getControlLaw()}
+ * строит по {@code getMaxVelocity} и {@code getMaxAngularVelocity}). Роботы по очереди едут к своим целям;
+ * цель, не достигнутая за {@link Scenario#timeoutTicks()} шагов, считается провалом из-за кружения
+ * вокруг неё, и робот переходит к следующей.
+ * <p>
+ * Миры не разделяют состояния и выполняются параллельно: по умолчанию каждый в своём виртуальном потоке,
+ * либо в ограниченном пуле платформенных потоков, если задан их размер. Результаты собираются в порядке
+ * сценариев и пишутся в CSV.
+ * <p>
+ * Запуск из командной строки: {@code java logic.BatchRunner сценарии.txt результаты.csv [потоков]}.
+ */
+public class BatchRunner {
+    /**
+     * Заголовок CSV; порядок совпадает с {@link Result#toCsv()}.
+     */
+    public static final String CSV_HEADER = "name,v,w,robots,targets,layout,dt,integrator,reached,orbitFailures,"
+            + "meanTimeToTargetMs,p95TimeToTargetMs,maxTimeToTargetMs,meanPathLength,ticks,wallMillis,robotTicksPerSecond";
+
+    private final int platformThreads;
+
+    /**
+     * @param platformThreads размер пула платформенных потоков; 0 — виртуальный поток на каждый сценарий
+     */
+    public BatchRunner(int platformThreads) {
+        if (platformThreads < 0) {
+            throw new IllegalArgumentException("Thread count must not be negative");
+        }
+        this.platformThreads = platformThreads;
+    }
+
+    /**
+     * Итоги одного сценария. Времена — в миллисекундах модельного времени.
+     *
+     * @param reached             сколько целей достигнуто всеми роботами
+     * @param orbitFailures       сколько целей брошено по тайм-ауту
+     * @param meanPathLength      средний путь одного робота, пикс
+     * @param ticks               число шагов мира
+     * @param wallMillis          реальное время прогона
+     * @param robotTicksPerSecond шагов робота в секунду реального времени
+     */
+    public record Result(Scenario scenario, long reached, long orbitFailures, double meanTimeToTargetMs,
+                         double p95TimeToTargetMs, double maxTimeToTargetMs, double meanPathLength,
+                         long ticks, long wallMillis, double robotTicksPerSecond) {
+        /**
+         * Возвращает строку CSV в порядке {@link #CSV_HEADER}.
+         */
+        public String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%s,%s,%s,%d,%d,%.1f,%.1f,%.1f,%.2f,%d,%d,%.0f",
+                    csvField(scenario.name()), scenario.velocity(), scenario.angularVelocity(), scenario.robots(),
+                    scenario.targets(), scenario.layout().name().toLowerCase(Locale.ROOT), scenario.dt(),
+                    scenario.integrator().name().toLowerCase(Locale.ROOT), reached, orbitFailures,
+                    meanTimeToTargetMs, p95TimeToTargetMs, maxTimeToTargetMs, meanPathLength,
+                    ticks, wallMillis, robotTicksPerSecond);
+        }
+
+        private static String csvField(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    /**
+     * Выполняет сценарии параллельно и возвращает их итоги в том же порядке.
+     *
+     * @throws InterruptedException если прогон прерван
+     * @throws IllegalStateException если мир сценария завершился ошибкой
+     */
+    public List<Result> run(List<Scenario> scenarios) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>(scenarios.size());
+        try (ExecutorService executor = platformThreads == 0
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(platformThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "BatchWorker");
+                    thread.setDaemon(true);
+                    return thread;
+                })) {
+            List<Future<Result>> futures = new ArrayList<>(scenarios.size());
+            for (Scenario scenario : scenarios) {
+                futures.add(executor.submit(() -> simulate(scenario)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    executor.shutdownNow();
+                    throw new IllegalStateException("Scenario " + scenarios.get(i).name() + " failed", e.getCause());
+                }
+            }
+        }
+        Logger.at(LogLevel.Info).with("scenarios", scenarios.size())
+                .with("threads", platformThreads == 0 ? "virtual" : String.valueOf(platformThreads))
+                .with("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .log("Batch finished");
+        return results;
+    }
+
+    /**
+     * Прогоняет один сценарий в текущем потоке.
+     */
+    public static Result simulate(Scenario scenario) {
+        long start = System.nanoTime();
+        int robots = scenario.robots();
+        SplittableRandom random = new SplittableRandom(scenario.seed());
+        double[][] targets = targetLayout(scenario, random);
+        RobotFleet fleet = new RobotFleet(robots);
+        fleet.setControlLaw(
+                new DefaultControlLaw(scenario.velocity(), scenario.angularVelocity(), scenario.integrator()));
+        double[] lastX = new double[robots];
+        double[] lastY = new double[robots];
+        double[] path = new double[robots];
+        int[] nextTarget = new int[robots];
+        int[] ticksOnTarget = new int[robots];
+        for (int i = 0; i < robots; i++) {
+            lastX[i] = random.nextDouble() * scenario.fieldWidth();
+            lastY[i] = random.nextDouble() * scenario.fieldHeight();
+            fleet.add(lastX[i], lastY[i], random.nextDouble() * 2 * Math.PI);
+            double[] target = targets[i % targets.length];
+            fleet.setTarget(i, target[0], target[1]);
+        }
+        long[] timesTicks = new long[robots * scenario.targets()];
+        int reached = 0;
+        int failures = 0;
+        int active = robots;
+        long ticks = 0;
+        while (active > 0) {
+            fleet.step(scenario.dt());
+            ticks++;
+            for (int i = 0; i < robots; i++) {
+                if (nextTarget[i] == scenario.targets()) {
+                    continue;
+                }
+                double x = fleet.getX(i);
+                double y = fleet.getY(i);
+                path[i] += Math.hypot(x - lastX[i], y - lastY[i]);
+                lastX[i] = x;
+                lastY[i] = y;
+                ticksOnTarget[i]++;
+                boolean arrived = Math.hypot(fleet.getTargetX(i) - x, fleet.getTargetY(i) - y)
+                        < DefaultControlLaw.ARRIVAL_DISTANCE;
+                if (!arrived && ticksOnTarget[i] < scenario.timeoutTicks()) {
+                    continue;
+                }
+                if (arrived) {
+                    timesTicks[reached++] = ticksOnTarget[i];
+                } else {
+                    failures++;
+                }
+                ticksOnTarget[i] = 0;
+                if (++nextTarget[i] == scenario.targets()) {
+                    active--;
+                } else {
+                    double[] target = targets[(i + nextTarget[i]) % targets.length];
+                    fleet.setTarget(i, target[0], target[1]);
+                }
+            }
+        }
+        long wallNanos = Math.max(1, System.nanoTime() - start);
+        long[] times = Arrays.copyOf(timesTicks, reached);
+        Arrays.sort(times);
+        double total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        double dt = scenario.dt();
+        double pathTotal = 0;
+        for (double length : path) {
+            pathTotal += length;
+        }
+        return new Result(scenario, reached, failures,
+                reached > 0 ? total / reached * dt : Double.NaN,
+                reached > 0 ? times[(int) Math.min(reached - 1, Math.ceil(0.95 * reached) - 1)] * dt : Double.NaN,
+                reached > 0 ? times[reached - 1] * dt : Double.NaN,
+                pathTotal / robots, ticks, TimeUnit.NANOSECONDS.toMillis(wallNanos),
+                (double) ticks * robots * 1e9 / wallNanos);
+    }
+
+    /**
+     * Строит точки целей сценария. Робот {@code i} едет к целям {@code i, i+1, ...} по кругу,
+     * поэтому для случайного расположения у каждого робота свои точки.
+     */
+    private static double[][] targetLayout(Scenario scenario, SplittableRandom random) {
+        int width = scenario.fieldWidth();
+        int height = scenario.fieldHeight();
+        int count = scenario.layout() == Scenario.Layout.RANDOM
+                ? scenario.targets() + scenario.robots() - 1
+                : scenario.targets();
+        double[][] points = new double[count][];
+        switch (scenario.layout()) {
+            case RANDOM -> {
+                for (int i = 0; i < count; i++) {
+                    points[i] = new double[]{random.nextDouble() * width, random.nextDouble() * height};
+                }
+            }
+            case CIRCLE -> {
+                double radius = Math.min(width, height) / 3.0;
+                for (int i = 0; i < count; i++) {
+                    double angle = 2 * Math.PI * i / count;
+                    points[i] = new double[]{width / 2.0 + radius * Math.cos(angle),
+                            height / 2.0 + radius * Math.sin(angle)};
+                }
+            }
+            case GRID -> {
+                int columns = (int) Math.ceil(Math.sqrt(count));
+                int rows = (count + columns - 1) / columns;
+                for (int i = 0; i < count; i++) {
+                    points[i] = new double[]{(i % columns + 0.5) * width / columns,
+                            (i / columns + 0.5) * height / rows};
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Записывает итоги в CSV-файл с заголовком {@link #CSV_HEADER}.
+     */
+    public static void writeCsv(List<Result> results, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+            for (Result result : results) {
+                writer.write(result.toCsv());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Точка входа пакетного прогона: {@code сценарии.txt результаты.csv [потоков]}.
+     * Без числа потоков каждый сценарий выполняется в своём виртуальном потоке.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: BatchRunner <scenarios> <results.csv> [platform threads]");
+            System.exit(2);
+        }
+        List<Scenario> scenarios = Scenario.parse(Path.of(args[0]));
+        int threads = args.length == 3 ? Integer.parseInt(args[2]) : 0;
+        List<Result> results = new BatchRunner(threads).run(scenarios);
+        writeCsv(results, Path.of(args[1]));
+        System.out.println(results.size() + " scenarios written to " + args[1]);
+    }
+}
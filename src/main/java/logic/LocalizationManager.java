@@ -1,23 +1,38 @@
 package logic;
 
+import log.LogLevel;
+import log.Logger;
+
+import javax.swing.SwingUtilities;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Singleton-класс для управления локализацией приложения.
  * Позволяет изменять текущую локаль и оповещать слушателей об изменении языка.
+ * <p>
+ * Строки берутся из неизменяемой {@link MessageTable} текущей локали. Таблица новой локали загружается
+ * в фоне и кешируется, затем в EDT подменяется одной записью и слушатели оповещаются одним проходом.
+ * Если языки переключают быстрее, чем грузятся таблицы, применяется только последний выбор.
  */
 public class LocalizationManager {
+    private static final String BUNDLE_NAME = "messages";
     private static final LocalizationManager instance = new LocalizationManager();
-    private Locale currentLocale = Locale.of("ru");
-    private ResourceBundle bundle = ResourceBundle.getBundle("messages", currentLocale);
+    private final Map<Locale, CompletableFuture<MessageTable>> tables = new ConcurrentHashMap<>();
+    // Таблица вместе с её локалью подменяется атомарно; читается из любого потока
+    private volatile MessageTable table = MessageTable.load(BUNDLE_NAME, Locale.of("ru"));
+    private final AtomicLong localeRequests = new AtomicLong();
     private final PropertyChangeSupport support = new PropertyChangeSupport(this);
 
     /**
      * Приватный конструктор для реализации шаблона Singleton.
      */
     private LocalizationManager() {
+        tables.put(table.getLocale(), CompletableFuture.completedFuture(table));
     }
 
     /**
@@ -37,28 +52,85 @@ public class LocalizationManager {
     }
 
     /**
-     * Устанавливает новую локаль и оповещает всех слушателей.
+     * Начинает фоновую загрузку таблицы сообщений локали, чтобы последующая смена языка была мгновенной.
+     * Таблица, которую не удалось загрузить, убирается из кеша.
+     *
+     * @return будущее, завершающееся загруженной таблицей
+     */
+    public CompletableFuture<MessageTable> preload(Locale locale) {
+        CompletableFuture<MessageTable> loading = tables.computeIfAbsent(locale, key ->
+                CompletableFuture.supplyAsync(() -> {
+                    long start = System.nanoTime();
+                    MessageTable loaded = MessageTable.load(BUNDLE_NAME, key);
+                    Logger.at(LogLevel.Debug).with("locale", key).with("micros", (System.nanoTime() - start) / 1000)
+                            .log("Message table loaded");
+                    return loaded;
+                }));
+        // неудачная загрузка не кешируется, чтобы следующий выбор языка попробовал снова
+        loading.whenComplete((loaded, error) -> {
+            if (error != null) {
+                tables.remove(locale, loading);
+            }
+        });
+        return loading;
+    }
+
+    /**
+     * Устанавливает новую локаль и оповещает всех слушателей в EDT.
+     * Если таблица локали уже загружена и вызов идёт из EDT, локаль меняется сразу;
+     * иначе таблица загружается в фоне, и смена происходит позже.
      *
      * @param locale новая локаль
+     * @return будущее, завершающееся в EDT после оповещения слушателей
      */
-    public void setLocale(Locale locale) {
-        Locale oldLocale = currentLocale;
-        currentLocale = locale;
-        bundle = ResourceBundle.getBundle("messages", currentLocale);
-        support.firePropertyChange("locale", oldLocale, locale);
+    public CompletableFuture<Void> setLocale(Locale locale) {
+        long request = localeRequests.incrementAndGet();
+        CompletableFuture<MessageTable> loading = preload(locale);
+        MessageTable loaded = loading.getNow(null);
+        if (loaded != null && SwingUtilities.isEventDispatchThread()) {
+            apply(loaded);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        loading.whenComplete((next, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                Logger.at(LogLevel.Error).with("locale", locale).log("Failed to load messages: {}", error.toString());
+                applied.completeExceptionally(error);
+                return;
+            }
+            // более поздний выбор языка отменяет этот
+            if (request == localeRequests.get()) {
+                apply(next);
+            }
+            applied.complete(null);
+        }));
+        return applied;
+    }
+
+    private void apply(MessageTable next) {
+        MessageTable previous = table;
+        table = next;
+        support.firePropertyChange("locale", previous.getLocale(), next.getLocale());
     }
 
     /**
      * Возвращает локализованную строку по ключу.
      */
     public String getString(String key) {
-        return bundle.getString(key);
+        return table.getString(key);
+    }
+
+    /**
+     * Возвращает локализованное сообщение с подстановками {@code {0}, {1}, ...}.
+     */
+    public String format(String key, Object... args) {
+        return table.format(key, args);
     }
 
     /**
      * Возвращает текущую локаль.
      */
     public Locale getCurrentLocale() {
-        return currentLocale;
+        return table.getLocale();
     }
 }
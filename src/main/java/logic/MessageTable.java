@@ -0,0 +1,81 @@
+package logic;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+/**
+ * Неизменяемая таблица сообщений одной локали.
+ * <p>
+ * При создании все строки пакета ресурсов копируются в хеш-таблицу, а строки с подстановками
+ * {@code {0}} сразу разбираются в {@link MessageFormat}. Поэтому поиск строки не обращается
+ * к {@link ResourceBundle} и его цепочке родителей, а форматирование не разбирает шаблон заново.
+ * Таблицу можно читать из любого потока.
+ */
+public final class MessageTable {
+    private final Locale locale;
+    private final Map<String, String> strings;
+    private final Map<String, MessageFormat> formats;
+
+    private MessageTable(Locale locale, Map<String, String> strings, Map<String, MessageFormat> formats) {
+        this.locale = locale;
+        this.strings = strings;
+        this.formats = formats;
+    }
+
+    /**
+     * Загружает таблицу из пакета ресурсов {@code baseName} для локали.
+     *
+     * @throws MissingResourceException если пакета нет
+     */
+    public static MessageTable load(String baseName, Locale locale) {
+        ResourceBundle bundle = ResourceBundle.getBundle(baseName, locale);
+        Map<String, String> strings = new HashMap<>();
+        Map<String, MessageFormat> formats = new HashMap<>();
+        Enumeration<String> keys = bundle.getKeys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            String value = bundle.getString(key);
+            strings.put(key, value);
+            if (value.indexOf('{') >= 0) {
+                formats.put(key, new MessageFormat(value, locale));
+            }
+        }
+        return new MessageTable(locale, Collections.unmodifiableMap(strings), Collections.unmodifiableMap(formats));
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Возвращает строку по ключу.
+     *
+     * @throws MissingResourceException если ключа нет, как и {@link ResourceBundle#getString(String)}
+     */
+    public String getString(String key) {
+        String value = strings.get(key);
+        if (value == null) {
+            throw new MissingResourceException("Missing message: " + key, MessageTable.class.getName(), key);
+        }
+        return value;
+    }
+
+    /**
+     * Форматирует сообщение с подстановками по заранее разобранному шаблону.
+     * Строка без подстановок возвращается как есть.
+     */
+    public String format(String key, Object... args) {
+        MessageFormat format = formats.get(key);
+        if (format == null) {
+            return getString(key);
+        }
+        // MessageFormat не потокобезопасен; копия дешевле повторного разбора шаблона
+        return ((MessageFormat) format.clone()).format(args);
+    }
+}
@@ -0,0 +1,31 @@
+package logic;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Описание JAR-файла робота, прочитанное без загрузки его классов:
+ * из манифеста и файлов {@code META-INF/services}.
+ *
+ * @param jarFile      JAR-файл плагина
+ * @param name         имя робота: атрибут манифеста {@value PluginScanner#NAME_ATTRIBUTE},
+ *                     {@code Implementation-Title} или имя файла
+ * @param version      атрибут манифеста {@code Implementation-Version} или пустая строка
+ * @param modelClasses классы, объявленные реализациями {@link model.ExternalRobotModel}
+ * @param guiClasses   классы, объявленные реализациями {@link gui.ExternalRobotGui}
+ */
+public record PluginDescriptor(File jarFile, String name, String version,
+                               List<String> modelClasses, List<String> guiClasses) {
+    /**
+     * Проверяет, объявлены ли реализации в файлах сервисов. Если нет,
+     * они будут найдены просмотром JAR-файла при первой загрузке.
+     */
+    public boolean isDeclared() {
+        return !modelClasses.isEmpty() && !guiClasses.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return version.isEmpty() ? name : name + " " + version;
+    }
+}
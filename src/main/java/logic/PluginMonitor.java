@@ -0,0 +1,383 @@
+package logic;
+
+import gui.DefaultRobotGui;
+import gui.ExternalRobotGui;
+import log.LogLevel;
+import log.Logger;
+import model.DefaultControlLaw;
+import model.ExternalRobotModel;
+import model.RobotControlLaw;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Учёт и ограничение времени, которое тратит код внешних роботов.
+ * <p>
+ * {@link #monitor(String, ExternalRobotModel)} и {@link #monitor(String, ExternalRobotGui)} оборачивают
+ * плагин так, что каждый вызов его кода (шаг закона управления, отрисовка) замеряется:
+ * копятся число вызовов, суммарное и максимальное время и гистограмма по степеням двойки,
+ * по которой считаются перцентили. Вызов дольше бюджета записывается в лог как медленный.
+ * Если в окне из {@value #WINDOW_CALLS} вызовов набралось {@code maxViolations} медленных,
+ * либо вызов бросил исключение, этот вызов плагина понижается: дальше вместо него работает
+ * стандартная реализация ({@link DefaultControlLaw#DEFAULT}, {@link DefaultRobotGui}).
+ * <p>
+ * Сторожевой поток раз в {@value #WATCHDOG_PERIOD_MILLIS} мс проверяет незавершённые вызовы
+ * и понижает плагин, зависший дольше {@value #HANG_BUDGETS} бюджетов вызова. Прервать уже зависший вызов нельзя,
+ * но после его возврата код плагина больше не вызывается.
+ */
+public class PluginMonitor implements AutoCloseable {
+    /**
+     * Бюджет одного вызова отрисовки, мс.
+     */
+    public static final String DRAW_BUDGET_PROPERTY = "robots.plugin.budget.draw";
+    /**
+     * Бюджет одного шага закона управления, мс.
+     */
+    public static final String STEP_BUDGET_PROPERTY = "robots.plugin.budget.step";
+    /**
+     * Сколько медленных вызовов в окне допускается до понижения.
+     */
+    public static final String VIOLATIONS_PROPERTY = "robots.plugin.violations";
+
+    private static final int WINDOW_CALLS = 100;
+    private static final long WATCHDOG_PERIOD_MILLIS = 100;
+    private static final int HANG_BUDGETS = 50;
+
+    private final long drawBudgetNanos;
+    private final long stepBudgetNanos;
+    private final int maxViolations;
+    private final List<CallStats> calls = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * @param drawBudgetNanos бюджет одного вызова отрисовки
+     * @param stepBudgetNanos бюджет одного шага закона управления
+     * @param maxViolations   сколько медленных вызовов в окне допускается до понижения
+     */
+    public PluginMonitor(long drawBudgetNanos, long stepBudgetNanos, int maxViolations) {
+        this.drawBudgetNanos = drawBudgetNanos;
+        this.stepBudgetNanos = stepBudgetNanos;
+        this.maxViolations = maxViolations;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PluginWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::checkHangs,
+                WATCHDOG_PERIOD_MILLIS, WATCHDOG_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Создаёт монитор с бюджетами из системных свойств; по умолчанию 8 мс на отрисовку,
+     * 2 мс на шаг и 20 медленных вызовов на окно.
+     */
+    public static PluginMonitor fromSystemProperties() {
+        return new PluginMonitor(
+                TimeUnit.MICROSECONDS.toNanos((long) (1000 * doubleProperty(DRAW_BUDGET_PROPERTY, 8))),
+                TimeUnit.MICROSECONDS.toNanos((long) (1000 * doubleProperty(STEP_BUDGET_PROPERTY, 2))),
+                (int) doubleProperty(VIOLATIONS_PROPERTY, 20));
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        try {
+            return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Оборачивает модель внешнего робота: закон управления, который она вернёт, будет замеряться.
+     *
+     * @param plugin имя плагина для статистики и лога
+     */
+    public ExternalRobotModel monitor(String plugin, ExternalRobotModel model) {
+        CallStats stats = register(plugin, "step", stepBudgetNanos);
+        return new ExternalRobotModel() {
+            @Override
+            public double getMaxVelocity() {
+                return model.getMaxVelocity();
+            }
+
+            @Override
+            public double getMaxAngularVelocity() {
+                return model.getMaxAngularVelocity();
+            }
+
+            @Override
+            public RobotControlLaw getControlLaw() {
+                return new MonitoredControlLaw(stats, model.getControlLaw());
+            }
+        };
+    }
+
+    /**
+     * Оборачивает отрисовку внешнего робота.
+     *
+     * @param plugin имя плагина для статистики и лога
+     */
+    public ExternalRobotGui monitor(String plugin, ExternalRobotGui gui) {
+        CallStats stats = register(plugin, "draw", drawBudgetNanos);
+        return (g, x, y, direction) -> {
+            if (stats.demoted) {
+                DefaultRobotGui.INSTANCE.drawRobot(g, x, y, direction);
+                return;
+            }
+            long start = stats.begin();
+            try {
+                gui.drawRobot(g, x, y, direction);
+            } catch (RuntimeException | LinkageError e) {
+                stats.fail(e);
+                DefaultRobotGui.INSTANCE.drawRobot(g, x, y, direction);
+            } finally {
+                stats.end(start);
+            }
+        };
+    }
+
+    /**
+     * Возвращает статистику всех замеряемых вызовов.
+     */
+    public List<CallStats> getStats() {
+        return Collections.unmodifiableList(new ArrayList<>(calls));
+    }
+
+    /**
+     * Перестаёт учитывать вызовы плагина, например после его выгрузки.
+     */
+    public void forget(String plugin) {
+        calls.removeIf(stats -> stats.plugin.equals(plugin));
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+    }
+
+    private CallStats register(String plugin, String call, long budgetNanos) {
+        CallStats stats = new CallStats(plugin, call, budgetNanos, maxViolations);
+        // новая версия плагина начинает статистику заново
+        calls.removeIf(old -> old.plugin.equals(plugin) && old.call.equals(call));
+        calls.add(stats);
+        return stats;
+    }
+
+    private void checkHangs() {
+        long now = System.nanoTime();
+        for (CallStats stats : calls) {
+            long started = stats.inFlightSince;
+            if (started != 0 && !stats.demoted && now - started > stats.budgetNanos * HANG_BUDGETS) {
+                stats.demote("hung for " + TimeUnit.NANOSECONDS.toMillis(now - started) + " ms");
+            }
+        }
+    }
+
+    /**
+     * Закон управления плагина под замером; после понижения работает стандартный закон.
+     * Перед вызовом плагина состояние роботов диапазона копируется, и если плагин бросил исключение,
+     * состояние восстанавливается, а шаг выполняется стандартным законом: упавший шаг не оставляет
+     * роботов наполовину сдвинутыми и не теряет времени симуляции.
+     */
+    private static final class MonitoredControlLaw implements RobotControlLaw {
+        // Копии x, y и dir на время вызова; свои у каждого потока, так как парк можно шагать частями
+        private static final ThreadLocal<double[][]> BACKUP = ThreadLocal.withInitial(() -> new double[3][0]);
+
+        private final CallStats stats;
+        private final RobotControlLaw delegate;
+
+        MonitoredControlLaw(CallStats stats, RobotControlLaw delegate) {
+            this.stats = stats;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void step(double[] x, double[] y, double[] dir, double[] tx, double[] ty, int from, int to, double dt) {
+            if (stats.demoted) {
+                DefaultControlLaw.DEFAULT.step(x, y, dir, tx, ty, from, to, dt);
+                return;
+            }
+            double[][] backup = backup(x, y, dir, from, to);
+            boolean failed = false;
+            long start = stats.begin();
+            try {
+                delegate.step(x, y, dir, tx, ty, from, to, dt);
+            } catch (RuntimeException | LinkageError e) {
+                stats.fail(e);
+                failed = true;
+            } finally {
+                stats.end(start);
+            }
+            if (failed) {
+                int count = to - from;
+                System.arraycopy(backup[0], 0, x, from, count);
+                System.arraycopy(backup[1], 0, y, from, count);
+                System.arraycopy(backup[2], 0, dir, from, count);
+                DefaultControlLaw.DEFAULT.step(x, y, dir, tx, ty, from, to, dt);
+            }
+        }
+
+        private static double[][] backup(double[] x, double[] y, double[] dir, int from, int to) {
+            double[][] backup = BACKUP.get();
+            int count = to - from;
+            if (backup[0].length < count) {
+                for (int i = 0; i < backup.length; i++) {
+                    backup[i] = new double[count];
+                }
+            }
+            System.arraycopy(x, from, backup[0], 0, count);
+            System.arraycopy(y, from, backup[1], 0, count);
+            System.arraycopy(dir, from, backup[2], 0, count);
+            return backup;
+        }
+    }
+
+    /**
+     * Статистика одного вида вызовов одного плагина.
+     * Время раскладывается по корзинам {@code [2^(b-1), 2^b)} нс, перцентиль оценивается верхней границей корзины.
+     */
+    public static final class CallStats {
+        private static final int BUCKETS = 64;
+
+        private final String plugin;
+        private final String call;
+        private final long budgetNanos;
+        private final int maxViolations;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong violations = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private int windowCalls;
+        private int windowViolations;
+        private volatile long inFlightSince;
+        private volatile boolean demoted;
+
+        CallStats(String plugin, String call, long budgetNanos, int maxViolations) {
+            this.plugin = plugin;
+            this.call = call;
+            this.budgetNanos = budgetNanos;
+            this.maxViolations = maxViolations;
+        }
+
+        long begin() {
+            long start = System.nanoTime();
+            inFlightSince = start;
+            return start;
+        }
+
+        void end(long start) {
+            long elapsed = System.nanoTime() - start;
+            inFlightSince = 0;
+            count.incrementAndGet();
+            totalNanos.addAndGet(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+            histogram.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(Math.max(1, elapsed)) - 1);
+            boolean slow = elapsed > budgetNanos;
+            if (slow) {
+                violations.incrementAndGet();
+                Logger.at(LogLevel.Warning).with("plugin", plugin).with("call", call)
+                        .with("micros", elapsed / 1000).with("budgetMicros", budgetNanos / 1000)
+                        .log("Slow plugin call");
+            }
+            boolean demote;
+            synchronized (this) {
+                windowCalls++;
+                if (slow) {
+                    windowViolations++;
+                }
+                demote = windowViolations >= maxViolations;
+                if (windowCalls >= WINDOW_CALLS) {
+                    windowCalls = 0;
+                    windowViolations = 0;
+                }
+            }
+            if (demote) {
+                demote(maxViolations + " calls over budget");
+            }
+        }
+
+        void fail(Throwable e) {
+            demote("failed with " + e);
+        }
+
+        void demote(String reason) {
+            if (demoted) {
+                return;
+            }
+            demoted = true;
+            Logger.at(LogLevel.Error).with("plugin", plugin).with("call", call)
+                    .log("Plugin demoted to fallback: {}", reason);
+        }
+
+        public String getPlugin() {
+            return plugin;
+        }
+
+        public String getCall() {
+            return call;
+        }
+
+        public long getBudgetNanos() {
+            return budgetNanos;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * Возвращает число вызовов дольше бюджета за всё время.
+         */
+        public long getViolations() {
+            return violations.get();
+        }
+
+        public boolean isDemoted() {
+            return demoted;
+        }
+
+        /**
+         * Оценивает перцентиль времени вызова.
+         *
+         * @param quantile доля вызовов от 0 до 1, например 0.99
+         * @return верхняя граница корзины, в которую попадает перцентиль, нс; 0, если вызовов не было
+         */
+        public long percentileNanos(double quantile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package logic;
+
+import log.LogLevel;
+import log.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Реестр плагинов — внешних JAR-файлов с реализациями роботов.
+ * <p>
+ * Для каждого JAR-файла открывается ровно один {@link URLClassLoader}; загруженные классы и созданные
+ * экземпляры кешируются, поэтому повторная загрузка того же файла не создаёт новых загрузчиков
+ * и не расходует metaspace. Если файл изменился на диске (размер или время изменения),
+ * старый загрузчик закрывается и файл открывается заново.
+ * <p>
+ * Реализации интерфейса ищутся в файлах {@code META-INF/services/<имя интерфейса>} самого JAR-файла;
+ * если такого файла нет, просматривается оглавление JAR-файла. Класс, реализующий несколько
+ * интерфейсов (например, модель и отрисовку робота), создаётся один раз.
+ * <p>
+ * {@link #unload(File)} закрывает загрузчик и забывает все его классы и экземпляры.
+ * <p>
+ * Загрузчик плагина ищет классы сначала в самом JAR-файле и только потом у приложения. Исключение —
+ * типы, через которые приложение и плагин общаются: платформа Java, интерфейсы роботов ({@code model.*}),
+ * {@link gui.ExternalRobotGui} и лог ({@code log.*}) всегда берутся у приложения. Поэтому библиотека,
+ * вложенная в плагин, не конфликтует с одноимённой библиотекой приложения или другого плагина,
+ * а экземпляры плагина по-прежнему приводятся к интерфейсам приложения.
+ */
+public class PluginRegistry implements AutoCloseable {
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+    private static final String CLASS_SUFFIX = ".class";
+    /**
+     * Префиксы имён, которые загрузчик плагина всегда берёт у приложения.
+     */
+    private static final String[] SHARED_PREFIXES = {
+            "java.", "javax.", "jdk.", "sun.", "com.sun.", "model.", "log.", "gui.ExternalRobotGui"
+    };
+
+    private final Map<File, Plugin> plugins = new ConcurrentHashMap<>();
+
+    /**
+     * Открытый JAR-файл: загрузчик и кеши классов и экземпляров.
+     * Кеши изменяются под монитором плагина.
+     */
+    private static final class Plugin {
+        final File jar;
+        final long length;
+        final long lastModified;
+        final PluginClassLoader classLoader;
+        final Map<Class<?>, List<String>> implementations = new HashMap<>();
+        final Map<String, Object> instances = new HashMap<>();
+        List<String> jarClassNames;
+
+        Plugin(File jar) throws IOException {
+            this.jar = jar;
+            this.length = jar.length();
+            this.lastModified = jar.lastModified();
+            this.classLoader = new PluginClassLoader(jar.toURI().toURL(), PluginRegistry.class.getClassLoader());
+        }
+
+        boolean isStale() {
+            return jar.length() != length || jar.lastModified() != lastModified;
+        }
+    }
+
+    /**
+     * Загрузчик «сначала плагин»: общие с приложением типы ({@link #SHARED_PREFIXES}) делегируются родителю,
+     * остальные классы и ресурсы ищутся сначала в JAR-файле плагина.
+     */
+    private static final class PluginClassLoader extends URLClassLoader {
+        static {
+            registerAsParallelCapable();
+        }
+
+        PluginClassLoader(URL jar, ClassLoader parent) {
+            super(new URL[]{jar}, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (isShared(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try {
+                        loaded = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        loaded = getParent().loadClass(name);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+
+        @Override
+        public URL getResource(String name) {
+            URL own = findResource(name);
+            return own != null ? own : super.getResource(name);
+        }
+
+        private static boolean isShared(String name) {
+            for (String prefix : SHARED_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает имена классов JAR-файла, реализующих интерфейс.
+     *
+     * @param jarFile JAR-файл плагина
+     * @param type    интерфейс робота
+     * @return имена классов в порядке объявления в {@code META-INF/services} или в оглавлении
+     * @throws IOException если JAR-файл не читается
+     */
+    public List<String> findImplementations(File jarFile, Class<?> type) throws IOException {
+        Plugin plugin = open(jarFile);
+        synchronized (plugin) {
+            List<String> names = plugin.implementations.get(type);
+            if (names == null) {
+                names = discover(plugin, type);
+                plugin.implementations.put(type, names);
+            }
+            return names;
+        }
+    }
+
+    /**
+     * Возвращает экземпляр первой найденной реализации интерфейса в JAR-файле.
+     *
+     * @param jarFile JAR-файл плагина
+     * @param type    интерфейс робота
+     * @throws ClassNotFoundException если в JAR-файле нет реализаций интерфейса
+     */
+    public <T> T getInstance(File jarFile, Class<T> type) throws IOException, ReflectiveOperationException {
+        List<String> names = findImplementations(jarFile, type);
+        if (names.isEmpty()) {
+            throw new ClassNotFoundException("No implementation of " + type.getName() + " in " + jarFile.getName());
+        }
+        return getInstance(jarFile, names.get(0), type);
+    }
+
+    /**
+     * Возвращает экземпляр заданного класса из JAR-файла, создавая его при первом обращении.
+     *
+     * @param jarFile   JAR-файл плагина
+     * @param className полное имя класса (с пакетом)
+     * @param type      интерфейс, который класс обязан реализовывать
+     * @throws ClassCastException если класс не реализует интерфейс
+     */
+    public <T> T getInstance(File jarFile, String className, Class<T> type)
+            throws IOException, ReflectiveOperationException {
+        Plugin plugin = open(jarFile);
+        synchronized (plugin) {
+            Object instance = plugin.instances.get(className);
+            if (instance == null) {
+                Class<?> pluginClass = Class.forName(className, true, plugin.classLoader);
+                instance = pluginClass.getDeclaredConstructor().newInstance();
+                plugin.instances.put(className, instance);
+            }
+            return type.cast(instance);
+        }
+    }
+
+    /**
+     * Проверяет, открыт ли JAR-файл в реестре.
+     */
+    public boolean isLoaded(File jarFile) {
+        return plugins.containsKey(key(jarFile));
+    }
+
+    /**
+     * Закрывает загрузчик JAR-файла и забывает его классы и экземпляры.
+     * Уже выданные экземпляры продолжают работать, но новые классы из закрытого загрузчика не загружаются.
+     *
+     * @param jarFile JAR-файл плагина
+     */
+    public void unload(File jarFile) {
+        Plugin plugin = plugins.remove(key(jarFile));
+        if (plugin != null) {
+            closeQuietly(plugin);
+        }
+    }
+
+    /**
+     * Закрывает загрузчики всех открытых JAR-файлов.
+     */
+    @Override
+    public void close() {
+        for (File jar : new ArrayList<>(plugins.keySet())) {
+            unload(jar);
+        }
+    }
+
+    private Plugin open(File jarFile) throws IOException {
+        File key = key(jarFile);
+        Plugin plugin = plugins.get(key);
+        if (plugin != null && !plugin.isStale()) {
+            return plugin;
+        }
+        synchronized (plugins) {
+            plugin = plugins.get(key);
+            if (plugin != null && plugin.isStale()) {
+                plugins.remove(key);
+                closeQuietly(plugin);
+                plugin = null;
+            }
+            if (plugin == null) {
+                plugin = new Plugin(key);
+                plugins.put(key, plugin);
+                Logger.at(LogLevel.Debug).with("jar", key.getName()).log("Plugin opened");
+            }
+            return plugin;
+        }
+    }
+
+    private static File key(File jarFile) {
+        return jarFile.getAbsoluteFile().toPath().normalize().toFile();
+    }
+
+    private static List<String> discover(Plugin plugin, Class<?> type) throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        // findResources ищет только в самом JAR-файле, не в родительском загрузчике приложения
+        Enumeration<URL> services = plugin.classLoader.findResources(SERVICES_PREFIX + type.getName());
+        while (services.hasMoreElements()) {
+            readServiceFile(services.nextElement(), names);
+        }
+        if (names.isEmpty()) {
+            for (String className : jarClassNames(plugin)) {
+                if (implementsType(plugin.classLoader, className, type)) {
+                    names.add(className);
+                }
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(names));
+    }
+
+    private static void readServiceFile(URL url, Set<String> names) throws IOException {
+        readServiceFile(url.openStream(), names);
+    }
+
+    /**
+     * Читает файл {@code META-INF/services}: по одному имени класса в строке, {@code #} начинает комментарий.
+     * Поток читается до конца и закрывается; для записи подписанного JAR-файла это заодно проверяет подпись.
+     *
+     * @param in    содержимое файла сервиса
+     * @param names коллекция, в которую добавляются имена классов
+     */
+    static void readServiceFile(InputStream in, Collection<String> names) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String name = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+    }
+
+    private static List<String> jarClassNames(Plugin plugin) throws IOException {
+        if (plugin.jarClassNames == null) {
+            List<String> names = new ArrayList<>();
+            try (JarFile jar = new JarFile(plugin.jar)) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    String entry = entries.nextElement().getName();
+                    if (entry.endsWith(CLASS_SUFFIX) && !entry.contains("$") && !entry.startsWith("META-INF/")) {
+                        names.add(entry.substring(0, entry.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+                    }
+                }
+            }
+            plugin.jarClassNames = names;
+        }
+        return plugin.jarClassNames;
+    }
+
+    private static boolean implementsType(ClassLoader classLoader, String className, Class<?> type) {
+        try {
+            // без инициализации: статические блоки чужих классов не выполняются при просмотре
+            Class<?> candidate = Class.forName(className, false, classLoader);
+            return type.isAssignableFrom(candidate) && !candidate.isInterface()
+                    && !Modifier.isAbstract(candidate.getModifiers());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Plugin plugin) {
+        synchronized (plugin) {
+            plugin.instances.clear();
+            plugin.implementations.clear();
+        }
+        try {
+            plugin.classLoader.close();
+            Logger.at(LogLevel.Debug).with("jar", plugin.jar.getName()).log("Plugin unloaded");
+        } catch (IOException e) {
+            Logger.at(LogLevel.Warning).with("jar", plugin.jar.getName())
+                    .log("Failed to close plugin class loader: {}", e.getMessage());
+        }
+    }
+}
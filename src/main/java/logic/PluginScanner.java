@@ -0,0 +1,132 @@
+package logic;
+
+import gui.ExternalRobotGui;
+import log.LogLevel;
+import log.Logger;
+import model.ExternalRobotModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Параллельный просмотр каталога плагинов при запуске.
+ * <p>
+ * Каждый JAR-файл открывается в отдельном виртуальном потоке; читаются только манифест
+ * и файлы {@code META-INF/services} для интерфейсов роботов, классы не загружаются.
+ * Файлы открываются с проверкой подписи, поэтому повреждённый или неверно подписанный
+ * JAR-файл отсеивается уже при просмотре. Загрузка классов и создание робота откладываются
+ * до момента, когда робот этого типа действительно выбран ({@link RobotLoader#loadRobotModel(PluginDescriptor)}).
+ */
+public class PluginScanner {
+    /**
+     * Атрибут манифеста с отображаемым именем робота.
+     */
+    public static final String NAME_ATTRIBUTE = "Robot-Name";
+
+    private static final String MODEL_SERVICE = "META-INF/services/" + ExternalRobotModel.class.getName();
+    private static final String GUI_SERVICE = "META-INF/services/" + ExternalRobotGui.class.getName();
+
+    /**
+     * Просматривает JAR-файлы каталога, не блокируя вызывающий поток.
+     * Файлы, которые не удалось прочитать, пропускаются с предупреждением в логе.
+     *
+     * @param directory каталог плагинов; если его нет, результат пуст
+     * @return описания плагинов, упорядоченные по имени
+     */
+    public CompletableFuture<List<PluginDescriptor>> scan(Path directory) {
+        return CompletableFuture.supplyAsync(() -> scanBlocking(directory), runnable -> {
+            Thread thread = new Thread(runnable, "PluginScanner");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    private List<PluginDescriptor> scanBlocking(Path directory) {
+        List<Path> jars = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.jar")) {
+                stream.forEach(jars::add);
+            } catch (IOException e) {
+                Logger.at(LogLevel.Warning).with("dir", directory)
+                        .log("Failed to list plugins: {}", e.getMessage());
+            }
+        }
+        long start = System.nanoTime();
+        List<CompletableFuture<PluginDescriptor>> futures = new ArrayList<>(jars.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path jar : jars) {
+                futures.add(CompletableFuture.supplyAsync(() -> read(jar.toFile()), executor));
+            }
+        }
+        List<PluginDescriptor> result = new ArrayList<>(futures.size());
+        for (CompletableFuture<PluginDescriptor> future : futures) {
+            PluginDescriptor descriptor = future.join();
+            if (descriptor != null) {
+                result.add(descriptor);
+            }
+        }
+        result.sort(Comparator.comparing(PluginDescriptor::name, String.CASE_INSENSITIVE_ORDER));
+        Logger.at(LogLevel.Debug).with("jars", jars.size()).with("robots", result.size())
+                .with("millis", (System.nanoTime() - start) / 1_000_000).log("Plugin directory scanned");
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Читает описание одного JAR-файла.
+     *
+     * @return описание или {@code null}, если файл не читается или не содержит классов
+     */
+    static PluginDescriptor read(File jarFile) {
+        try (JarFile jar = new JarFile(jarFile, true)) {
+            boolean hasClasses = jar.stream().anyMatch(entry -> entry.getName().endsWith(".class"));
+            if (!hasClasses) {
+                return null;
+            }
+            Manifest manifest = jar.getManifest();
+            Attributes attributes = manifest != null ? manifest.getMainAttributes() : new Attributes();
+            String name = firstNonEmpty(attributes.getValue(NAME_ATTRIBUTE),
+                    attributes.getValue(Attributes.Name.IMPLEMENTATION_TITLE),
+                    jarFile.getName().replaceFirst("(?i)\\.jar$", ""));
+            String version = firstNonEmpty(attributes.getValue(Attributes.Name.IMPLEMENTATION_VERSION), "");
+            return new PluginDescriptor(jarFile, name, version,
+                    readService(jar, MODEL_SERVICE), readService(jar, GUI_SERVICE));
+        } catch (IOException | SecurityException e) {
+            Logger.at(LogLevel.Warning).with("jar", jarFile.getName())
+                    .log("Skipping unreadable plugin: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static List<String> readService(JarFile jar, String service) throws IOException {
+        JarEntry entry = jar.getJarEntry(service);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        PluginRegistry.readServiceFile(jar.getInputStream(entry), names);
+        return Collections.unmodifiableList(names);
+    }
+
+    private static String firstNonEmpty(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return "";
+    }
+}
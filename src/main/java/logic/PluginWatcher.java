@@ -0,0 +1,236 @@
+package logic;
+
+import gui.ExternalRobotGui;
+import log.LogLevel;
+import log.Logger;
+import model.ExternalRobotModel;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Следит за каталогом плагинов и перезагружает JAR-файлы роботов без остановки симуляции.
+ * <p>
+ * Когда JAR-файл в каталоге создаётся или меняется, наблюдатель дожидается, пока запись файла
+ * закончится, копирует его в скрытый подкаталог {@value #SHADOW_DIRECTORY} и загружает копию
+ * через {@link RobotLoader} в новый загрузчик классов. Исходный файл при этом остаётся свободным
+ * для следующей сборки. Перед передачей слушателю новая версия прогревается: модель опрашивается,
+ * а робот рисуется во внеэкранное изображение. Если загрузка или прогрев не удались,
+ * текущий робот остаётся на месте.
+ * <p>
+ * Вся работа идёт в отдельном потоке-демоне; слушатель вызывается в нём же и сам решает,
+ * когда подменить робота. Копию, которая больше не используется, нужно освободить через {@link #discard(File)}.
+ */
+public class PluginWatcher implements AutoCloseable {
+    /**
+     * Подкаталог для теневых копий загруженных JAR-файлов.
+     */
+    public static final String SHADOW_DIRECTORY = ".shadow";
+    /**
+     * Сколько файл должен оставаться неизменным, чтобы считаться дописанным.
+     */
+    private static final long QUIET_PERIOD_MILLIS = 300;
+    private static final int WARM_UP_ITERATIONS = 1000;
+
+    /**
+     * Получатель новых версий робота.
+     */
+    public interface Listener {
+        /**
+         * Вызывается в потоке наблюдателя, когда новая версия загружена и прогрета.
+         *
+         * @param jarFile    исходный JAR-файл в каталоге плагинов
+         * @param loadedFile теневая копия, из которой загружены классы
+         */
+        void onPluginReloaded(File jarFile, File loadedFile, ExternalRobotModel model, ExternalRobotGui gui);
+
+        /**
+         * Вызывается в потоке наблюдателя, когда JAR-файл в каталоге плагинов появился или изменился,
+         * ещё до его загрузки, — например, чтобы обновить список доступных роботов.
+         *
+         * @param jarFile JAR-файл в каталоге плагинов
+         */
+        default void onPluginFileChanged(File jarFile) {
+        }
+    }
+
+    private final Path directory;
+    private final Path shadowDirectory;
+    private final RobotLoader robotLoader;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final AtomicLong shadowCounter = new AtomicLong();
+
+    /**
+     * Создаёт каталог плагинов, если его нет, и начинает следить за ним.
+     *
+     * @param directory   каталог плагинов
+     * @param robotLoader загрузчик роботов
+     * @param listener    получатель новых версий
+     * @throws IOException если каталог недоступен
+     */
+    public PluginWatcher(Path directory, RobotLoader robotLoader, Listener listener) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.shadowDirectory = this.directory.resolve(SHADOW_DIRECTORY);
+        this.robotLoader = robotLoader;
+        this.listener = listener;
+        Files.createDirectories(shadowDirectory);
+        try (DirectoryStream<Path> old = Files.newDirectoryStream(shadowDirectory, "*.jar")) {
+            for (Path file : old) {
+                Files.deleteIfExists(file);
+            }
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        this.directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::watchLoop, "PluginWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Копирует JAR-файл в каталог теневых копий, чтобы загрузить классы из копии,
+     * а исходный файл оставить свободным для замены.
+     * Копию, которая больше не нужна, освобождает {@link #discard(File)}.
+     *
+     * @param jarFile исходный JAR-файл
+     * @return файл копии
+     * @throws IOException если файл не удалось скопировать
+     */
+    public File createShadowCopy(File jarFile) throws IOException {
+        String name = jarFile.getName();
+        String base = name.toLowerCase().endsWith(".jar") ? name.substring(0, name.length() - 4) : name;
+        File shadow = shadowDirectory.resolve(base + "-" + shadowCounter.incrementAndGet() + ".jar").toFile();
+        Files.copy(jarFile.toPath(), shadow.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return shadow;
+    }
+
+    /**
+     * Выгружает теневую копию, которая больше не используется, и удаляет её файл.
+     * Файлы вне каталога теневых копий только выгружаются.
+     *
+     * @param loadedFile файл, из которого были загружены классы
+     */
+    public void discard(File loadedFile) {
+        robotLoader.unload(loadedFile);
+        Path path = loadedFile.toPath().toAbsolutePath().normalize();
+        if (shadowDirectory.equals(path.getParent())) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                Logger.at(LogLevel.Warning).with("jar", loadedFile.getName())
+                        .log("Failed to delete plugin copy: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Прекращает наблюдение за каталогом.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            Logger.at(LogLevel.Warning).log("Failed to close plugin watcher: {}", e.getMessage());
+        }
+        thread.interrupt();
+    }
+
+    private void watchLoop() {
+        // JAR-файл -> время последнего события о нём; перезагрузка ждёт, пока события утихнут
+        Map<Path, Long> pending = new HashMap<>();
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path name && name.toString().toLowerCase().endsWith(".jar")) {
+                            pending.put(directory.resolve(name), System.nanoTime());
+                        }
+                    }
+                    key.reset();
+                }
+                long quietSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(QUIET_PERIOD_MILLIS);
+                Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Path, Long> entry = iterator.next();
+                    if (entry.getValue() <= quietSince) {
+                        iterator.remove();
+                        reload(entry.getKey());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // наблюдатель закрыт
+        }
+    }
+
+    private void reload(Path jar) {
+        if (!Files.isRegularFile(jar)) {
+            return;
+        }
+        String name = jar.getFileName().toString();
+        listener.onPluginFileChanged(jar.toFile());
+        File shadow;
+        try {
+            shadow = createShadowCopy(jar.toFile());
+        } catch (IOException e) {
+            Logger.at(LogLevel.Error).with("jar", name).log("Failed to copy robot plugin: {}", e.toString());
+            return;
+        }
+        try {
+            ExternalRobotModel model = robotLoader.loadRobotFromJarModel(shadow);
+            ExternalRobotGui gui = robotLoader.loadRobotFromJarGui(shadow);
+            warmUp(model, gui);
+            Logger.at(LogLevel.Info).with("jar", name).log("Robot plugin reloaded");
+            listener.onPluginReloaded(jar.toFile(), shadow, model, gui);
+        } catch (Exception | LinkageError e) {
+            Logger.at(LogLevel.Error).with("jar", name).log("Failed to reload robot plugin: {}", e.toString());
+            discard(shadow);
+        }
+    }
+
+    /**
+     * Прогоняет новую версию вне игрового поля, чтобы классы были загружены и инициализированы
+     * до подмены, а явно неработоспособная версия отсеялась.
+     */
+    private static void warmUp(ExternalRobotModel model, ExternalRobotGui gui) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            double velocity = model.getMaxVelocity();
+            double angularVelocity = model.getMaxAngularVelocity();
+            if (!Double.isFinite(velocity) || !Double.isFinite(angularVelocity)) {
+                throw new IllegalStateException("Robot velocity must be finite");
+            }
+        }
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            for (int i = 0; i < 8; i++) {
+                gui.drawRobot(g, 32, 32, i * Math.PI / 4);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -4,13 +4,24 @@ import gui.ExternalRobotGui;
 import model.ExternalRobotModel;
 import javax.swing.*;
 import java.io.File;
-import java.net.URL;
-import java.net.URLClassLoader;
 
 /**
- * Класс для загрузки внешних реализаций роботов из JAR-файлов
+ * Класс для загрузки внешних реализаций роботов из JAR-файлов.
+ * Загрузчики классов и экземпляры хранит {@link PluginRegistry}, поэтому повторная загрузка
+ * того же JAR-файла не открывает новый загрузчик.
  */
 public class RobotLoader {
+    private final PluginRegistry registry = new PluginRegistry();
+
+    /**
+     * Загружает модель робота из указанного JAR-файла
+     * @param jarFile файл JAR с реализацией робота
+     * @return экземпляр первого класса, объявленного в META-INF/services или найденного в JAR-файле
+     * @throws Exception если произошла ошибка загрузки
+     */
+    public ExternalRobotModel loadRobotFromJarModel(File jarFile) throws Exception {
+        return registry.getInstance(jarFile, ExternalRobotModel.class);
+    }
 
     /**
      * Загружает класс робота из указанного JAR-файла
@@ -20,10 +31,17 @@ public class RobotLoader {
      * @throws Exception если произошла ошибка загрузки
      */
     public ExternalRobotModel loadRobotFromJarModel(File jarFile, String className) throws Exception {
-        URL jarUrl = jarFile.toURI().toURL();
-        URLClassLoader classLoader = new URLClassLoader(new URL[]{jarUrl});
-        Class<?> robotClass = classLoader.loadClass(className);
-        return (ExternalRobotModel) robotClass.getDeclaredConstructor().newInstance();
+        return registry.getInstance(jarFile, className, ExternalRobotModel.class);
+    }
+
+    /**
+     * Загружает отрисовку робота из указанного JAR-файла
+     * @param jarFile файл JAR с реализацией робота
+     * @return экземпляр первого класса, объявленного в META-INF/services или найденного в JAR-файле
+     * @throws Exception если произошла ошибка загрузки
+     */
+    public ExternalRobotGui loadRobotFromJarGui(File jarFile) throws Exception {
+        return registry.getInstance(jarFile, ExternalRobotGui.class);
     }
 
     /**
@@ -34,10 +52,45 @@ public class RobotLoader {
      * @throws Exception если произошла ошибка загрузки
      */
     public ExternalRobotGui loadRobotFromJarGui(File jarFile, String className) throws Exception {
-        URL jarUrl = jarFile.toURI().toURL();
-        URLClassLoader classLoader = new URLClassLoader(new URL[]{jarUrl});
-        Class<?> robotClass = classLoader.loadClass(className);
-        return (ExternalRobotGui) robotClass.getDeclaredConstructor().newInstance();
+        return registry.getInstance(jarFile, className, ExternalRobotGui.class);
+    }
+
+    /**
+     * Загружает модель робота по описанию, полученному {@link PluginScanner}.
+     * Классы загружаются только при этом вызове; объявленное в описании имя класса
+     * избавляет от повторного просмотра JAR-файла.
+     * @param descriptor описание плагина
+     * @return экземпляр модели робота
+     * @throws Exception если произошла ошибка загрузки
+     */
+    public ExternalRobotModel loadRobotModel(PluginDescriptor descriptor) throws Exception {
+        return descriptor.modelClasses().isEmpty()
+                ? loadRobotFromJarModel(descriptor.jarFile())
+                : loadRobotFromJarModel(descriptor.jarFile(), descriptor.modelClasses().get(0));
+    }
+
+    /**
+     * Загружает отрисовку робота по описанию, полученному {@link PluginScanner}.
+     * @param descriptor описание плагина
+     * @return экземпляр отрисовки робота
+     * @throws Exception если произошла ошибка загрузки
+     */
+    public ExternalRobotGui loadRobotGui(PluginDescriptor descriptor) throws Exception {
+        return descriptor.guiClasses().isEmpty()
+                ? loadRobotFromJarGui(descriptor.jarFile())
+                : loadRobotFromJarGui(descriptor.jarFile(), descriptor.guiClasses().get(0));
+    }
+
+    /**
+     * Выгружает JAR-файл: закрывает его загрузчик классов и забывает созданные экземпляры
+     * @param jarFile ранее загруженный файл JAR
+     */
+    public void unload(File jarFile) {
+        registry.unload(jarFile);
+    }
+
+    public PluginRegistry getRegistry() {
+        return registry;
     }
 
     /**
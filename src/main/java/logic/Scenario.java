@@ -0,0 +1,195 @@
+package logic;
+
+import model.DefaultControlLaw;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Сценарий пакетного прогона: параметры одного независимого мира симуляции.
+ * <p>
+ * Файл сценариев — строки из пар {@code ключ=значение} через пробел; пустые строки и строки
+ * с {@code #} игнорируются. Значение может быть списком {@code a,b,c} или диапазоном
+ * {@code от:до:шаг}; строка со списками и диапазонами разворачивается во все их сочетания.
+ * Ключи:
+ * <pre>
+ * name       имя сценария                                (по умолчанию line&lt;номер строки&gt;)
+ * v          скорость робота, пикс/мс                    (0.1)
+ * w          угловая скорость робота, рад/мс             (0.001)
+ * robots     число роботов                               (1)
+ * targets    число целей у каждого робота                (10)
+ * layout     расположение целей: random, circle, grid    (random)
+ * field      размер поля, ШИРИНАxВЫСОТА                  (1100x440)
+ * dt         шаг симуляции, мс                           (10)
+ * integrator интегрирование: euler, exact_arc, adaptive  (euler)
+ * timeout    шагов на одну цель до признания кружения    (20000)
+ * seed       зерно генератора случайных чисел            (номер строки)
+ * </pre>
+ * К зерну прибавляется номер варианта развёрнутой строки, так что варианты не повторяют друг друга.
+ * Пример: {@code name=speed v=0.05:0.3:0.05 w=0.001,0.002 robots=100 layout=circle}.
+ */
+public record Scenario(String name, double velocity, double angularVelocity, int robots, int targets,
+                       Layout layout, int fieldWidth, int fieldHeight, double dt,
+                       DefaultControlLaw.Integrator integrator, int timeoutTicks, long seed) {
+    /**
+     * Расположение целей на поле.
+     */
+    public enum Layout {
+        /**
+         * Равномерно случайные точки поля.
+         */
+        RANDOM,
+        /**
+         * Точки на окружности вокруг центра поля; роботы обходят их по кругу.
+         */
+        CIRCLE,
+        /**
+         * Узлы сетки; роботы обходят их по строкам.
+         */
+        GRID
+    }
+
+    /**
+     * Читает сценарии из файла в кодировке UTF-8.
+     *
+     * @throws IllegalArgumentException если строка файла содержит неизвестный ключ или неверное значение
+     */
+    public static List<Scenario> parse(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает строки файла сценариев.
+     *
+     * @throws IllegalArgumentException если строка содержит неизвестный ключ или неверное значение
+     */
+    public static List<Scenario> parse(List<String> lines) {
+        List<Scenario> scenarios = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                expand(line, i + 1, scenarios);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Scenario line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return Collections.unmodifiableList(scenarios);
+    }
+
+    private static void expand(String line, int lineNumber, List<Scenario> out) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (String token : line.split("\\s+")) {
+            int eq = token.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value: " + token);
+            }
+            String key = token.substring(0, eq);
+            if (!isKnownKey(key)) {
+                throw new IllegalArgumentException("Unknown key: " + key);
+            }
+            values.put(key, alternatives(token.substring(eq + 1)));
+        }
+        List<String> keys = new ArrayList<>(values.keySet());
+        int[] choice = new int[keys.size()];
+        int variant = 0;
+        while (true) {
+            Map<String, String> chosen = new LinkedHashMap<>();
+            StringBuilder suffix = new StringBuilder();
+            for (int k = 0; k < keys.size(); k++) {
+                List<String> options = values.get(keys.get(k));
+                chosen.put(keys.get(k), options.get(choice[k]));
+                if (options.size() > 1) {
+                    suffix.append('/').append(keys.get(k)).append('=').append(options.get(choice[k]));
+                }
+            }
+            out.add(of(chosen, lineNumber, variant++, suffix.toString()));
+            int k = keys.size() - 1;
+            while (k >= 0 && ++choice[k] == values.get(keys.get(k)).size()) {
+                choice[k] = 0;
+                k--;
+            }
+            if (k < 0) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isKnownKey(String key) {
+        return switch (key) {
+            case "name", "v", "w", "robots", "targets", "layout", "field", "dt", "integrator", "timeout", "seed" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Разворачивает список {@code a,b,c} или диапазон {@code от:до:шаг} в отдельные значения.
+     */
+    private static List<String> alternatives(String value) {
+        List<String> result = new ArrayList<>();
+        for (String part : value.split(",")) {
+            String[] range = part.split(":");
+            if (range.length == 3) {
+                double from = Double.parseDouble(range[0]);
+                double to = Double.parseDouble(range[1]);
+                double step = Double.parseDouble(range[2]);
+                if (step <= 0) {
+                    throw new IllegalArgumentException("Range step must be positive: " + part);
+                }
+                // целое число шагов избавляет от накопления ошибки округления
+                long count = (long) Math.floor((to - from) / step + 1e-9);
+                for (long i = 0; i <= count; i++) {
+                    result.add(trimNumber(from + i * step));
+                }
+            } else if (!part.isEmpty()) {
+                result.add(part);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("Empty value");
+        }
+        return result;
+    }
+
+    private static String trimNumber(double value) {
+        String text = String.format(Locale.ROOT, "%.9f", value);
+        text = text.replaceAll("0+$", "");
+        return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private static Scenario of(Map<String, String> values, int lineNumber, int variant, String suffix) {
+        String field = values.getOrDefault("field", "1100x440");
+        int x = field.toLowerCase(Locale.ROOT).indexOf('x');
+        if (x <= 0) {
+            throw new IllegalArgumentException("Field must be WIDTHxHEIGHT: " + field);
+        }
+        Scenario scenario = new Scenario(
+                values.getOrDefault("name", "line" + lineNumber) + suffix,
+                Double.parseDouble(values.getOrDefault("v", "0.1")),
+                Double.parseDouble(values.getOrDefault("w", "0.001")),
+                Integer.parseInt(values.getOrDefault("robots", "1")),
+                Integer.parseInt(values.getOrDefault("targets", "10")),
+                Layout.valueOf(values.getOrDefault("layout", "random").toUpperCase(Locale.ROOT)),
+                Integer.parseInt(field.substring(0, x)),
+                Integer.parseInt(field.substring(x + 1)),
+                Double.parseDouble(values.getOrDefault("dt", "10")),
+                DefaultControlLaw.Integrator.valueOf(values.getOrDefault("integrator", "euler").toUpperCase(Locale.ROOT)),
+                Integer.parseInt(values.getOrDefault("timeout", "20000")),
+                Long.parseLong(values.getOrDefault("seed", String.valueOf(lineNumber))) + variant);
+        if (scenario.robots < 1 || scenario.targets < 1 || scenario.timeoutTicks < 1 || !(scenario.dt > 0)
+                || scenario.fieldWidth < 1 || scenario.fieldHeight < 1) {
+            throw new IllegalArgumentException("robots, targets, timeout, dt and field must be positive");
+        }
+        return scenario;
+    }
+}
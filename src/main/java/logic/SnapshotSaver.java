@@ -0,0 +1,145 @@
+package logic;
+
+import log.LogLevel;
+import log.Logger;
+import model.SimulationSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Сохранение и загрузка снимков симуляции.
+ * <p>
+ * Снимок снимается поставщиком — между шагами симуляции, чтобы все роботы были в одном шаге, —
+ * а кодируется и пишется в отдельном потоке-демоне: сначала во временный файл рядом с целевым,
+ * затем временный файл атомарно переименовывается. Поэтому прерванная запись никогда не портит
+ * последний удачный снимок. Загрузка читает файл через отображение в память.
+ * <p>
+ * Автосохранение пропускает очередной запуск, если предыдущая запись ещё не закончилась.
+ */
+public class SnapshotSaver implements AutoCloseable {
+    private final Path file;
+    private final Supplier<CompletableFuture<SimulationSnapshot>> capture;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean saving = new AtomicBoolean();
+
+    /**
+     * @param file    файл снимка
+     * @param capture поставщик снимка; возвращённое будущее завершается, когда снимок снят
+     */
+    public SnapshotSaver(Path file, Supplier<CompletableFuture<SimulationSnapshot>> capture) {
+        this.file = file.toAbsolutePath();
+        this.capture = capture;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SnapshotWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Снимает снимок и записывает его в фоне.
+     *
+     * @return будущее, завершающееся записанным снимком
+     */
+    public CompletableFuture<SimulationSnapshot> saveAsync() {
+        return capture.get().thenApplyAsync(snapshot -> {
+            try {
+                write(snapshot);
+                return snapshot;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Запускает периодическое автосохранение.
+     *
+     * @param periodSeconds период в секундах
+     */
+    public void startAutosave(long periodSeconds) {
+        executor.scheduleWithFixedDelay(this::autosave, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    private void autosave() {
+        if (!saving.compareAndSet(false, true)) {
+            return;
+        }
+        saveAsync().whenComplete((snapshot, error) -> {
+            saving.set(false);
+            if (error != null) {
+                Logger.at(LogLevel.Warning).with("file", file.getFileName())
+                        .log("Autosave failed: {}", error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Загружает последний сохранённый снимок.
+     *
+     * @return снимок или пустое значение, если файла нет
+     * @throws IOException если файл не читается или повреждён
+     */
+    public Optional<SimulationSnapshot> load() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.of(SimulationSnapshot.decode(buffer));
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Останавливает автосохранение; уже начатая запись дописывается.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private void write(SimulationSnapshot snapshot) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer data = snapshot.encode();
+        Path directory = file.getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        Logger.at(LogLevel.Debug).with("robots", snapshot.getRobots().size()).with("tick", snapshot.getTick())
+                .with("micros", (System.nanoTime() - start) / 1000).log("Simulation snapshot saved");
+    }
+}
@@ -2,21 +2,60 @@ package logic;
 
 import gui.*;
 
+import log.LogLevel;
+import log.Logger;
+
 import javax.swing.*;
 import java.io.*;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * WindowsSaver отвечает за сохранение и загрузку состояния окон
  * (GameWindow, LogWindow и RobotInfoWindow) в файл конфигурации state.cfg.
+ * Чтение отделено от применения: файл разбирается в фоне в {@link State},
+ * а окна настраиваются в EDT по мере их создания.
  */
 public class WindowsSaver {
+    /**
+     * Окно свёрнуто в значок.
+     */
+    public static final int ICONIFIED = 0;
+    /**
+     * Окно открыто.
+     */
+    public static final int SHOWN = 1;
+    /**
+     * Окно закрыто пользователем; при запуске оно не создаётся.
+     */
+    public static final int CLOSED = -1;
+
+    private static final String CONFIG_FILE = "state.cfg";
+
+    /**
+     * Сохранённое состояние окон. Данные окна — массив {@code [x, y, ширина, высота, состояние]},
+     * где состояние — {@link #SHOWN}, {@link #ICONIFIED} или {@link #CLOSED}.
+     *
+     * @param mainFrame  данные главного окна (состояние — {@link JFrame#getExtendedState()}) или {@code null}
+     * @param language   язык интерфейса или {@code null}
+     */
+    public record State(int[] mainFrame, int[] gameWindow, int[] logWindow, int[] infoWindow, String language) {
+        /**
+         * Состояние при первом запуске, когда файла ещё нет.
+         */
+        public static final State DEFAULT = new State(null,
+                new int[]{100, 100, 400, 300, SHOWN},
+                new int[]{150, 150, 300, 200, SHOWN},
+                new int[]{200, 200, 300, 200, SHOWN},
+                null);
+    }
+
     /**
      * Сохраняет состояние внутреннего окна (JInternalFrame).
      */
     public int[] saveWidowData(JInternalFrame frame) {
-        int windowState = frame.isIcon() ? 0 : 1;
+        int windowState = frame.isClosed() || !frame.isVisible() ? CLOSED : frame.isIcon() ? ICONIFIED : SHOWN;
         return new int[]{
                 frame.getX(),
                 frame.getY(),
@@ -41,72 +80,116 @@ public class WindowsSaver {
     }
 
     /**
-     * Сохраняет данные о состоянии GameWindow, LogWindow и RobotInfoWindow в файл state.cfg.
+     * Сохраняет данные о состоянии окон в файл state.cfg.
+     * Окно, которое так и не было создано ({@code null}), сохраняется с данными из {@code loaded}.
+     *
+     * @param loaded состояние, прочитанное при запуске
      */
-    public void saveToFile(MainApplicationFrame mainFrame, GameWindow gameWindow, LogWindow logWindow, RobotInfoWindow infoWindow) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("state.cfg"))) {
+    public void saveToFile(MainApplicationFrame mainFrame, GameWindow gameWindow, LogWindow logWindow,
+                           RobotInfoWindow infoWindow, State loaded) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(CONFIG_FILE))) {
             writer.write("mainFrame=" + Arrays.toString(saveWidowData(mainFrame)));
             writer.newLine();
-            writer.write("gameWindow=" + Arrays.toString(saveWidowData(gameWindow)));
-            writer.newLine();
-            writer.write("logWindow=" + Arrays.toString(saveWidowData(logWindow)));
-            writer.newLine();
-            writer.write("infoWindow=" + Arrays.toString(saveWidowData(infoWindow)));
-            writer.newLine();
+            writeWindow(writer, "gameWindow", gameWindow, loaded.gameWindow());
+            writeWindow(writer, "logWindow", logWindow, loaded.logWindow());
+            writeWindow(writer, "infoWindow", infoWindow, loaded.infoWindow());
             writer.write("language=" + LocalizationManager.getInstance().getCurrentLocale().getLanguage());
             writer.newLine();
         }
     }
 
+    private void writeWindow(BufferedWriter writer, String key, JInternalFrame frame, int[] loaded)
+            throws IOException {
+        int[] data = frame != null ? saveWidowData(frame) : loaded;
+        if (data != null) {
+            writer.write(key + "=" + Arrays.toString(data));
+            writer.newLine();
+        }
+    }
+
     /**
-     * Загружает данные о положении и размере окон из файла "state.cfg".
+     * Читает state.cfg в фоновом потоке и заранее загружает таблицу сообщений сохранённого языка,
+     * чтобы EDT не ждал диска. Ошибка чтения записывается в лог, а результатом становится {@link State#DEFAULT}.
      */
-    public void loadFromFile(MainApplicationFrame mainFrame, GameWindow gameWindow, LogWindow logWindow,
-                             RobotInfoWindow infoWindow) throws IOException {
-        File configFile = new File("state.cfg");
+    public CompletableFuture<State> loadAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            State state;
+            try {
+                state = loadFromFile();
+            } catch (IOException | RuntimeException e) {
+                Logger.at(LogLevel.Warning).with("file", CONFIG_FILE)
+                        .log("Failed to read window state: {}", e.getMessage());
+                state = State.DEFAULT;
+            }
+            if (state.language() != null) {
+                try {
+                    LocalizationManager.getInstance().preload(Locale.of(state.language())).join();
+                } catch (RuntimeException e) {
+                    Logger.at(LogLevel.Warning).with("language", state.language())
+                            .log("Failed to preload messages: {}", e.getMessage());
+                }
+            }
+            StartupProfiler.getInstance().record("config", start);
+            return state;
+        });
+    }
 
+    /**
+     * Загружает данные о положении и размере окон из файла "state.cfg".
+     * Окна, которых нет в файле, получают положение по умолчанию.
+     */
+    public State loadFromFile() throws IOException {
+        File configFile = new File(CONFIG_FILE);
         if (!configFile.exists()) {
-            mainFrame.setExtendedState(JFrame.MAXIMIZED_BOTH);
-            gameWindow.setBounds(100, 100, 400, 300);
-            logWindow.setBounds(150, 150, 300, 200);
-            infoWindow.setBounds(200, 200, 300, 200);
-
-            mainFrame.setExtendedState(JFrame.NORMAL);
-            gameWindow.setVisible(true);
-            logWindow.setVisible(true);
-            infoWindow.setVisible(true);
-            return;
+            return State.DEFAULT;
         }
-
-        try (BufferedReader reader = new BufferedReader(new FileReader("state.cfg"))) {
+        int[] mainFrameData = null;
+        int[] gameData = State.DEFAULT.gameWindow();
+        int[] logData = State.DEFAULT.logWindow();
+        int[] infoData = State.DEFAULT.infoWindow();
+        String language = null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(configFile))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 if (line.startsWith("mainFrame=")) {
-                    int[] mainFrameData = parseData(line.substring("mainFrame=".length()));
-                    mainFrame.setBounds(mainFrameData[0], mainFrameData[1], mainFrameData[2], mainFrameData[3]);
-                    mainFrame.setExtendedState(mainFrameData[4]);
+                    mainFrameData = parseData(line.substring("mainFrame=".length()));
                 } else if (line.startsWith("gameWindow=")) {
-                    int[] gameData = parseData(line.substring("gameWindow=".length()));
-                    gameWindow.setGameData(gameData);
-                    gameWindow.setBounds(gameData[0], gameData[1], gameData[2], gameData[3]);
-                    gameWindow.setVisible(gameData[4] == 1);
+                    gameData = parseData(line.substring("gameWindow=".length()));
                 } else if (line.startsWith("logWindow=")) {
-                    int[] logData = parseData(line.substring("logWindow=".length()));
-                    logWindow.setLogData(logData);
-                    logWindow.setBounds(logData[0], logData[1], logData[2], logData[3]);
-                    logWindow.setVisible(logData[4] == 1);
+                    logData = parseData(line.substring("logWindow=".length()));
                 } else if (line.startsWith("infoWindow=")) {
-                    int[] infoData = parseData(line.substring("infoWindow=".length()));
-                    infoWindow.setRobotInfoData(infoData);
-                    infoWindow.setBounds(infoData[0], infoData[1], infoData[2], infoData[3]);
-                    infoWindow.setVisible(infoData[4] == 1);
+                    infoData = parseData(line.substring("infoWindow=".length()));
                 } else if (line.startsWith("language=")) {
-                    String lang = line.substring("language=".length()).trim();
-                    LocalizationManager.getInstance().setLocale(Locale.of(lang));
+                    language = line.substring("language=".length()).trim();
                 }
-
             }
         }
+        return new State(mainFrameData, gameData, logData, infoData, language);
+    }
+
+    /**
+     * Применяет к главному окну сохранённые положение и состояние и устанавливает сохранённый язык.
+     * Вызывается в EDT.
+     */
+    public void applyTo(MainApplicationFrame mainFrame, State state) {
+        int[] data = state.mainFrame();
+        if (data != null) {
+            mainFrame.setBounds(data[0], data[1], data[2], data[3]);
+            mainFrame.setExtendedState(data[4]);
+        }
+        if (state.language() != null
+                && !state.language().equals(LocalizationManager.getInstance().getCurrentLocale().getLanguage())) {
+            LocalizationManager.getInstance().setLocale(Locale.of(state.language()));
+        }
+    }
+
+    /**
+     * Применяет к внутреннему окну сохранённые положение и размер.
+     * Состояние окна (свёрнуто ли оно) применяет вызывающий, когда окно уже на рабочем столе.
+     */
+    public void applyTo(JInternalFrame frame, int[] data) {
+        frame.setBounds(data[0], data[1], data[2], data[3]);
     }
 
     /**
@@ -0,0 +1,213 @@
+package model;
+
+import java.util.Locale;
+
+/**
+ * Стандартный закон управления: робот едет вперёд с постоянной скоростью
+ * и поворачивает к цели с постоянной угловой скоростью.
+ * Робот ближе {@value #ARRIVAL_DISTANCE} к цели стоит на месте.
+ * <p>
+ * Как движение интегрируется за шаг, задаёт {@link Integrator}; по умолчанию — системное свойство
+ * {@value Integrator#PROPERTY}, а без него явный метод Эйлера.
+ */
+public final class DefaultControlLaw implements RobotControlLaw {
+    /**
+     * Способ интегрирования движения за шаг.
+     */
+    public enum Integrator {
+        /**
+         * Явный метод Эйлера: робот сдвигается по направлению на начало шага, затем поворачивается.
+         * Точен только при малом шаге; большой шаг уводит робота с дуги и проскакивает направление на цель.
+         */
+        EULER,
+        /**
+         * Точное решение для постоянных на шаге скоростей: робот едет по дуге окружности.
+         * Направление поворота выбирается в начале шага и держится весь шаг.
+         */
+        EXACT_ARC,
+        /**
+         * Дуги с переменным шагом: шаг делится в моменты, когда робот довернул на цель,
+         * и укорачивается так, чтобы направление на цель за подшаг менялось не больше чем на
+         * {@value #DRIFT_TOLERANCE} рад. Довернувший робот едет к цели по прямой — это предел траектории
+         * Эйлера при шаге, стремящемся к нулю. Далёкий от цели робот проходит шаг одной-двумя дугами.
+         */
+        ADAPTIVE;
+
+        public static final String PROPERTY = "robots.integrator";
+
+        /**
+         * Возвращает способ, заданный системным свойством ({@code euler}, {@code exact_arc}, {@code adaptive});
+         * по умолчанию — {@link #EULER}.
+         *
+         * @throws IllegalArgumentException если значение свойства неизвестно
+         */
+        public static Integrator fromSystemProperty() {
+            return valueOf(System.getProperty(PROPERTY, "euler").trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    /**
+     * Расстояние до цели, на котором робот считается прибывшим.
+     */
+    public static final double ARRIVAL_DISTANCE = 0.5;
+    /**
+     * Закон со скоростями встроенного робота.
+     */
+    public static final DefaultControlLaw DEFAULT = new DefaultControlLaw(0.1, 0.001);
+
+    private static final double TWO_PI = 2 * Math.PI;
+    // Допустимое изменение направления на цель за подшаг адаптивного метода, рад
+    private static final double DRIFT_TOLERANCE = 0.02;
+    // Отклонение от направления на цель, при котором робот считается довернувшим, рад
+    private static final double ALIGN_TOLERANCE = 1e-6;
+    private static final double MIN_SUBSTEP = 1e-3;
+    private static final int MAX_SUBSTEPS = 64;
+
+    private final double maxVelocity;
+    private final double maxAngularVelocity;
+    private final Integrator integrator;
+
+    /**
+     * Создаёт закон со способом интегрирования из системного свойства {@value Integrator#PROPERTY}.
+     *
+     * @param maxVelocity        скорость движения
+     * @param maxAngularVelocity угловая скорость поворота
+     */
+    public DefaultControlLaw(double maxVelocity, double maxAngularVelocity) {
+        this(maxVelocity, maxAngularVelocity, Integrator.fromSystemProperty());
+    }
+
+    /**
+     * @param maxVelocity        скорость движения
+     * @param maxAngularVelocity угловая скорость поворота
+     * @param integrator         способ интегрирования
+     */
+    public DefaultControlLaw(double maxVelocity, double maxAngularVelocity, Integrator integrator) {
+        this.maxVelocity = maxVelocity;
+        this.maxAngularVelocity = maxAngularVelocity;
+        this.integrator = integrator;
+    }
+
+    public double getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    public double getMaxAngularVelocity() {
+        return maxAngularVelocity;
+    }
+
+    public Integrator getIntegrator() {
+        return integrator;
+    }
+
+    @Override
+    public void step(double[] x, double[] y, double[] dir, double[] tx, double[] ty, int from, int to, double dt) {
+        switch (integrator) {
+            case EULER -> stepEuler(x, y, dir, tx, ty, from, to, dt);
+            case EXACT_ARC -> {
+                for (int i = from; i < to; i++) {
+                    double dx = tx[i] - x[i];
+                    double dy = ty[i] - y[i];
+                    if (Math.hypot(dx, dy) >= ARRIVAL_DISTANCE) {
+                        double bearing = bearingError(Math.atan2(dy, dx), dir[i]);
+                        arc(x, y, dir, i, bearing > 0 ? maxAngularVelocity : -maxAngularVelocity, dt);
+                    }
+                }
+            }
+            case ADAPTIVE -> {
+                for (int i = from; i < to; i++) {
+                    stepAdaptive(x, y, dir, tx[i], ty[i], i, dt);
+                }
+            }
+        }
+    }
+
+    private void stepEuler(double[] x, double[] y, double[] dir, double[] tx, double[] ty, int from, int to, double dt) {
+        double distanceStep = maxVelocity * dt;
+        double turnStep = maxAngularVelocity * dt;
+        for (int i = from; i < to; i++) {
+            double dx = tx[i] - x[i];
+            double dy = ty[i] - y[i];
+            if (Math.hypot(dx, dy) < ARRIVAL_DISTANCE) {
+                continue;
+            }
+            double direction = dir[i];
+            double angleDiff = normalizeAngle(normalizeAngle(Math.atan2(dy, dx)) - direction);
+            // angleDiff лежит в [0, 2π): больше π — цель справа, иначе слева
+            double turn = angleDiff > Math.PI ? -turnStep : (angleDiff > 0 ? turnStep : -turnStep);
+            x[i] += distanceStep * Math.cos(direction);
+            y[i] += distanceStep * Math.sin(direction);
+            dir[i] = normalizeAngle(direction + turn);
+        }
+    }
+
+    private void stepAdaptive(double[] x, double[] y, double[] dir, double targetX, double targetY, int i, double dt) {
+        double remaining = dt;
+        for (int substep = 0; substep < MAX_SUBSTEPS && remaining > 0; substep++) {
+            double dx = targetX - x[i];
+            double dy = targetY - y[i];
+            double distance = Math.hypot(dx, dy);
+            if (distance < ARRIVAL_DISTANCE) {
+                return;
+            }
+            double bearing = Math.atan2(dy, dx);
+            double error = bearingError(bearing, dir[i]);
+            if (Math.abs(error) <= ALIGN_TOLERANCE) {
+                // довернул: едет прямо и останавливается внутри круга прибытия, а не проскакивает цель
+                double travel = Math.min(maxVelocity * remaining, distance - ARRIVAL_DISTANCE / 2);
+                x[i] += travel * Math.cos(bearing);
+                y[i] += travel * Math.sin(bearing);
+                dir[i] = normalizeAngle(bearing);
+                return;
+            }
+            // направление на цель поворачивается со скоростью не больше v·|sin(ошибки)|/расстояние
+            double driftRate = maxVelocity * Math.abs(Math.sin(error)) / distance;
+            double h = Math.min(remaining, Math.abs(error) / maxAngularVelocity);
+            if (driftRate > 0) {
+                h = Math.min(h, DRIFT_TOLERANCE / driftRate);
+            }
+            if (substep == MAX_SUBSTEPS - 1) {
+                h = remaining;
+            }
+            h = Math.min(remaining, Math.max(h, MIN_SUBSTEP));
+            arc(x, y, dir, i, error > 0 ? maxAngularVelocity : -maxAngularVelocity, h);
+            remaining -= h;
+        }
+    }
+
+    /**
+     * Продвигает робота {@code i} на время {@code h} с постоянными скоростью и угловой скоростью {@code omega}.
+     */
+    private void arc(double[] x, double[] y, double[] dir, int i, double omega, double h) {
+        double start = dir[i];
+        double end = start + omega * h;
+        if (Math.abs(omega * h) < 1e-9) {
+            double middle = start + omega * h / 2;
+            x[i] += maxVelocity * h * Math.cos(middle);
+            y[i] += maxVelocity * h * Math.sin(middle);
+        } else {
+            double radius = maxVelocity / omega;
+            x[i] += radius * (Math.sin(end) - Math.sin(start));
+            y[i] -= radius * (Math.cos(end) - Math.cos(start));
+        }
+        dir[i] = normalizeAngle(end);
+    }
+
+    /**
+     * Возвращает угол от направления робота до направления на цель в диапазоне (-π, π]:
+     * положительный — цель слева, отрицательный — справа.
+     */
+    private static double bearingError(double bearing, double direction) {
+        double diff = normalizeAngle(normalizeAngle(bearing) - direction);
+        return diff > Math.PI ? diff - TWO_PI : diff;
+    }
+
+    /**
+     * Нормализует угол, приводя его в диапазон [0, 2π).
+     */
+    static double normalizeAngle(double angle) {
+        while (angle < 0) angle += TWO_PI;
+        while (angle >= TWO_PI) angle -= TWO_PI;
+        return angle;
+    }
+}
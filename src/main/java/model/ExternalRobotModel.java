@@ -12,4 +12,14 @@ public interface ExternalRobotModel {
      * Возвращает максимальный угол движения робота
      */
     double getMaxAngularVelocity();
-}
\ No newline at end of file
+
+    /**
+     * Возвращает закон управления, которым симуляция двигает роботов этого типа.
+     * Вызывается один раз при установке робота. По умолчанию — стандартный закон
+     * со скоростями {@link #getMaxVelocity()} и {@link #getMaxAngularVelocity()};
+     * робот со своим рулевым управлением переопределяет этот метод.
+     */
+    default RobotControlLaw getControlLaw() {
+        return new DefaultControlLaw(getMaxVelocity(), getMaxAngularVelocity());
+    }
+}
@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * Закон управления роботами: один шаг рулевого управления и кинематики сразу для группы роботов.
+ * <p>
+ * Состояние роботов передаётся столбцами — параллельными массивами примитивов, где индекс {@code i}
+ * описывает одного робота. Реализация обновляет {@code x}, {@code y} и {@code dir} для индексов
+ * из диапазона {@code [from, to)} и не трогает остальные. Так внешний робот работает в масштабе
+ * целого парка одним вызовом, без виртуального вызова на каждого робота.
+ */
+public interface RobotControlLaw {
+    /**
+     * Продвигает роботов с индексами {@code [from, to)} на время {@code dt}.
+     *
+     * @param x   координаты по оси X
+     * @param y   координаты по оси Y
+     * @param dir направления в радианах, в диапазоне [0, 2π)
+     * @param tx  целевые координаты по оси X
+     * @param ty  целевые координаты по оси Y
+     * @param dt  длительность шага (в тех же единицах, что и {@link RobotModel#update(double)})
+     */
+    void step(double[] x, double[] y, double[] dir, double[] tx, double[] ty, int from, int to, double dt);
+}
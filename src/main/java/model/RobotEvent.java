@@ -0,0 +1,82 @@
+package model;
+
+/**
+ * Переиспользуемое представление события робота из {@link RobotEventRing}.
+ * Заполняется при чтении курсором без выделения памяти; содержимое действительно
+ * только внутри вызова {@link RobotEventHandler#onEvent(RobotEvent, boolean)}.
+ * Каждое событие несёт полное состояние робота после изменения, поэтому потребителю,
+ * пропустившему часть событий, достаточно последнего.
+ */
+public final class RobotEvent {
+    /**
+     * Вид события.
+     */
+    public enum Type {
+        /**
+         * Робот сдвинулся или повернулся за шаг симуляции.
+         */
+        MOVED,
+        /**
+         * Роботу задана новая цель.
+         */
+        TARGET_CHANGED,
+        /**
+         * Состояние робота восстановлено из снимка.
+         */
+        RESTORED
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private Type type = Type.MOVED;
+    private long sequence = -1;
+    private double x;
+    private double y;
+    private double direction;
+    private double targetX;
+    private double targetY;
+
+    void set(byte type, long sequence, double x, double y, double direction, double targetX, double targetY) {
+        this.type = TYPES[type];
+        this.sequence = sequence;
+        this.x = x;
+        this.y = y;
+        this.direction = direction;
+        this.targetX = targetX;
+        this.targetY = targetY;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Возвращает порядковый номер события в кольце.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Возвращает направление робота в радианах.
+     */
+    public double getDirection() {
+        return direction;
+    }
+
+    public double getTargetX() {
+        return targetX;
+    }
+
+    public double getTargetY() {
+        return targetY;
+    }
+}
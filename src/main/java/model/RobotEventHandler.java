@@ -0,0 +1,16 @@
+package model;
+
+/**
+ * Потребитель событий робота, которому курсор {@link RobotEventRing.Cursor} передаёт события пачкой.
+ */
+@FunctionalInterface
+public interface RobotEventHandler {
+    /**
+     * Обрабатывает очередное событие.
+     *
+     * @param event      представление события; действительно только внутри вызова
+     * @param endOfBatch {@code true} для последнего события пачки — удобный момент для дорогой работы,
+     *                   например перерисовки
+     */
+    void onEvent(RobotEvent event, boolean endOfBatch);
+}
@@ -0,0 +1,178 @@
+package model;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кольцо заранее выделенных ячеек для событий робота — шина в духе Disruptor
+ * с одним производителем (потоком симуляции) и любым числом потребителей.
+ * <p>
+ * События не создаются как объекты: вид события и состояние робота хранятся в параллельных
+ * массивах-столбцах, ячейка выбирается маской по порядковому номеру. Рядом с каждой ячейкой хранится штамп,
+ * как в {@link log.LogEntryRing}: {@code -(seq + 1)} — ячейка записывается, {@code seq + 1} — опубликована.
+ * <p>
+ * Каждый потребитель читает через свой {@link Cursor} в своём потоке и в своём темпе, пачками.
+ * Производитель не ждёт потребителей: отставший больше чем на ёмкость кольца курсор перескакивает
+ * к самому старому сохранившемуся событию и учитывает пропущенные в {@link Cursor#getLostCount()}.
+ * Так медленный потребитель никогда не замедляет симуляцию; поскольку событие несёт полное состояние робота,
+ * потребителю обычно достаточно последнего события пачки.
+ */
+public final class RobotEventRing {
+    private final int mask;
+    private final AtomicLongArray stamps;
+    private final AtomicLong tail = new AtomicLong();
+    // Номер следующего события; меняется только производителем
+    private long next;
+
+    private final byte[] types;
+    private final double[] x;
+    private final double[] y;
+    private final double[] direction;
+    private final double[] targetX;
+    private final double[] targetY;
+
+    /**
+     * @param capacity число ячеек; степень двойки
+     */
+    public RobotEventRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        this.mask = capacity - 1;
+        this.stamps = new AtomicLongArray(capacity);
+        this.types = new byte[capacity];
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.direction = new double[capacity];
+        this.targetX = new double[capacity];
+        this.targetY = new double[capacity];
+    }
+
+    /**
+     * Публикует событие, ничего не выделяя в куче. Вызывается только из потока-производителя.
+     *
+     * @return порядковый номер события
+     */
+    public long publish(RobotEvent.Type type, double positionX, double positionY, double robotDirection,
+                        double goalX, double goalY) {
+        long sequence = next++;
+        int index = (int) (sequence & mask);
+        stamps.set(index, -(sequence + 1));
+        // запись столбцов не должна обогнать пометку «записывается», иначе читатель не заметит разрыва
+        VarHandle.storeStoreFence();
+        types[index] = (byte) type.ordinal();
+        x[index] = positionX;
+        y[index] = positionY;
+        direction[index] = robotDirection;
+        targetX[index] = goalX;
+        targetY[index] = goalY;
+        stamps.set(index, sequence + 1);
+        tail.setRelease(sequence + 1);
+        return sequence;
+    }
+
+    /**
+     * Возвращает номер, который получит следующее событие.
+     */
+    public long tailSequence() {
+        return tail.getAcquire();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Создаёт курсор, который увидит события, опубликованные после его создания.
+     */
+    public Cursor newCursor() {
+        return new Cursor(tailSequence());
+    }
+
+    private boolean read(long sequence, RobotEvent event) {
+        int index = (int) (sequence & mask);
+        long stamp = stamps.get(index);
+        if (stamp != sequence + 1) {
+            return false;
+        }
+        byte type = types[index];
+        double eventX = x[index];
+        double eventY = y[index];
+        double eventDirection = direction[index];
+        double eventTargetX = targetX[index];
+        double eventTargetY = targetY[index];
+        VarHandle.loadLoadFence();
+        if (stamps.get(index) != stamp) {
+            return false;
+        }
+        event.set(type, sequence, eventX, eventY, eventDirection, eventTargetX, eventTargetY);
+        return true;
+    }
+
+    /**
+     * Позиция одного потребителя в кольце. Используется из одного потока.
+     */
+    public final class Cursor {
+        private long position;
+        private long lost;
+        // Событие пачки отдаётся обработчику, когда прочитано следующее: так последнее получает endOfBatch
+        private RobotEvent pending = new RobotEvent();
+        private RobotEvent spare = new RobotEvent();
+
+        private Cursor(long position) {
+            this.position = position;
+        }
+
+        /**
+         * Передаёт обработчику до {@code maxBatch} новых событий.
+         *
+         * @return число переданных событий
+         */
+        public int drain(RobotEventHandler handler, int maxBatch) {
+            long available = tailSequence();
+            long oldest = available - capacity();
+            if (position < oldest) {
+                lost += oldest - position;
+                position = oldest;
+            }
+            long end = Math.min(available, position + maxBatch);
+            boolean hasPending = false;
+            int delivered = 0;
+            for (; position < end; position++) {
+                if (!read(position, spare)) {
+                    // производитель обогнал курсор во время чтения
+                    lost++;
+                    continue;
+                }
+                if (hasPending) {
+                    handler.onEvent(pending, false);
+                    delivered++;
+                }
+                RobotEvent swap = pending;
+                pending = spare;
+                spare = swap;
+                hasPending = true;
+            }
+            if (hasPending) {
+                handler.onEvent(pending, true);
+                delivered++;
+            }
+            return delivered;
+        }
+
+        /**
+         * Возвращает, сколько событий ждут курсор.
+         */
+        public long available() {
+            return Math.max(0, tailSequence() - position);
+        }
+
+        /**
+         * Возвращает число событий, перезаписанных до того, как курсор их прочитал.
+         */
+        public long getLostCount() {
+            return lost;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Парк роботов, хранящийся столбцами: координаты, направления и цели всех роботов
+ * лежат в параллельных массивах примитивов. Шаг симуляции — один вызов
+ * {@link RobotControlLaw#step} на весь парк.
+ * <p>
+ * Класс не потокобезопасен: изменения и шаги выполняются в одном потоке симуляции.
+ */
+public class RobotFleet {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] x;
+    private double[] y;
+    private double[] direction;
+    private double[] targetX;
+    private double[] targetY;
+    private int size;
+    private RobotControlLaw controlLaw = DefaultControlLaw.DEFAULT;
+
+    public RobotFleet() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param capacity начальная ёмкость массивов
+     */
+    public RobotFleet(int capacity) {
+        int initial = Math.max(1, capacity);
+        x = new double[initial];
+        y = new double[initial];
+        direction = new double[initial];
+        targetX = new double[initial];
+        targetY = new double[initial];
+    }
+
+    /**
+     * Добавляет робота, стоящего в точке и уже находящегося у своей цели.
+     *
+     * @return индекс робота
+     */
+    public int add(double positionX, double positionY, double robotDirection) {
+        if (size == x.length) {
+            int capacity = size * 2;
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            direction = Arrays.copyOf(direction, capacity);
+            targetX = Arrays.copyOf(targetX, capacity);
+            targetY = Arrays.copyOf(targetY, capacity);
+        }
+        int index = size++;
+        x[index] = positionX;
+        y[index] = positionY;
+        direction[index] = DefaultControlLaw.normalizeAngle(robotDirection);
+        targetX[index] = positionX;
+        targetY[index] = positionY;
+        return index;
+    }
+
+    /**
+     * Переставляет робота, например при восстановлении снимка. Цель не меняется.
+     */
+    public void setState(int index, double positionX, double positionY, double robotDirection) {
+        checkIndex(index);
+        x[index] = positionX;
+        y[index] = positionY;
+        direction[index] = DefaultControlLaw.normalizeAngle(robotDirection);
+    }
+
+    public void setTarget(int index, double tx, double ty) {
+        checkIndex(index);
+        targetX[index] = tx;
+        targetY[index] = ty;
+    }
+
+    /**
+     * Устанавливает закон управления для всего парка; {@code null} возвращает стандартный.
+     */
+    public void setControlLaw(RobotControlLaw controlLaw) {
+        this.controlLaw = controlLaw != null ? controlLaw : DefaultControlLaw.DEFAULT;
+    }
+
+    public RobotControlLaw getControlLaw() {
+        return controlLaw;
+    }
+
+    /**
+     * Продвигает всех роботов на время {@code dt}.
+     */
+    public void step(double dt) {
+        controlLaw.step(x, y, direction, targetX, targetY, 0, size, dt);
+    }
+
+    /**
+     * Продвигает роботов с индексами {@code [from, to)} на время {@code dt}.
+     * Позволяет делить парк на части между потоками.
+     */
+    public void step(int from, int to, double dt) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range");
+        }
+        controlLaw.step(x, y, direction, targetX, targetY, from, to, dt);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int index) {
+        checkIndex(index);
+        return x[index];
+    }
+
+    public double getY(int index) {
+        checkIndex(index);
+        return y[index];
+    }
+
+    public double getDirection(int index) {
+        checkIndex(index);
+        return direction[index];
+    }
+
+    public double getTargetX(int index) {
+        checkIndex(index);
+        return targetX[index];
+    }
+
+    public double getTargetY(int index) {
+        checkIndex(index);
+        return targetY[index];
+    }
+
+    /**
+     * Проверяет, стоит ли робот у своей цели и может ли принять новую.
+     */
+    public boolean isIdle(int index) {
+        checkIndex(index);
+        return Math.hypot(targetX[index] - x[index], targetY[index] - y[index]) < DefaultControlLaw.ARRIVAL_DISTANCE;
+    }
+
+    /**
+     * Возвращает состояние робота для снимка симуляции.
+     */
+    public SimulationSnapshot.Robot captureState(int index) {
+        checkIndex(index);
+        return new SimulationSnapshot.Robot(x[index], y[index], direction[index], targetX[index], targetY[index]);
+    }
+
+    /**
+     * Восстанавливает состояние робота из снимка симуляции.
+     */
+    public void restoreState(int index, SimulationSnapshot.Robot state) {
+        setState(index, state.x(), state.y(), state.direction());
+        setTarget(index, state.targetX(), state.targetY());
+    }
+
+    /**
+     * Массив координат X без копирования; действителен до следующего {@link #add}.
+     * Для индексов пакета моделей, которые читают весь парк за проход.
+     */
+    double[] xArray() {
+        return x;
+    }
+
+    double[] yArray() {
+        return y;
+    }
+
+    double[] targetXArray() {
+        return targetX;
+    }
+
+    double[] targetYArray() {
+        return targetY;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid robot index: " + index);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package model;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Двумерное k-d дерево по позициям роботов парка для поиска ближайших роботов.
+ * <p>
+ * {@link #rebuild()} строит дерево заново за O(n log n): роботы делятся медианой по более длинной
+ * стороне охватывающего прямоугольника, в листе не больше {@value #LEAF_SIZE} роботов.
+ * Между перестройками роботы двигаются, и вместо перестройки каждый шаг выполняется
+ * {@link #refit(IntPredicate)} за O(n): разбиение остаётся прежним, а охватывающие прямоугольники
+ * узлов пересчитываются по текущим позициям только подходящих роботов (например, свободных).
+ * Поиск отсекает узлы по прямоугольникам, а не по плоскостям разбиения, поэтому остаётся точным
+ * при любом смещении роботов; с ростом смещений он лишь медленнее, и дерево стоит перестраивать периодически.
+ * <p>
+ * Класс не потокобезопасен: используется в потоке симуляции вместе с парком.
+ */
+public final class RobotKdTree {
+    private static final int LEAF_SIZE = 8;
+    private static final int MAX_DEPTH = 64;
+
+    private final RobotFleet fleet;
+    // Индексы роботов; каждый лист покрывает отрезок [nodeLo, nodeHi) этого массива
+    private int[] order = new int[0];
+    // Узлы в прямом порядке обхода: левый потомок узла n — n + 1, правый — nodeRight[n], у листа -1
+    private int[] nodeLo = new int[0];
+    private int[] nodeHi = new int[0];
+    private int[] nodeRight = new int[0];
+    private double[] minX = new double[0];
+    private double[] minY = new double[0];
+    private double[] maxX = new double[0];
+    private double[] maxY = new double[0];
+    // Сколько подходящих роботов в поддереве на момент последнего refit
+    private int[] eligible = new int[0];
+    private int nodeCount;
+    private int builtSize;
+    private final int[] stack = new int[MAX_DEPTH * 2];
+
+    public RobotKdTree(RobotFleet fleet) {
+        this.fleet = fleet;
+    }
+
+    /**
+     * Возвращает число роботов, по которым построено дерево.
+     */
+    public int size() {
+        return builtSize;
+    }
+
+    /**
+     * Строит дерево заново по текущим позициям всех роботов парка; все роботы считаются подходящими.
+     */
+    public void rebuild() {
+        int n = fleet.size();
+        double[] x = fleet.xArray();
+        double[] y = fleet.yArray();
+        if (order.length < n) {
+            order = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int maxNodes = 2 * (n / ((LEAF_SIZE + 1) / 2) + 1);
+        if (nodeLo.length < maxNodes) {
+            nodeLo = new int[maxNodes];
+            nodeHi = new int[maxNodes];
+            nodeRight = new int[maxNodes];
+            minX = new double[maxNodes];
+            minY = new double[maxNodes];
+            maxX = new double[maxNodes];
+            maxY = new double[maxNodes];
+            eligible = new int[maxNodes];
+        }
+        nodeCount = 0;
+        builtSize = n;
+        build(x, y, 0, n, 0);
+        refit(index -> true);
+    }
+
+    private int build(double[] x, double[] y, int lo, int hi, int depth) {
+        int node = nodeCount++;
+        nodeLo[node] = lo;
+        nodeHi[node] = hi;
+        if (hi - lo <= LEAF_SIZE || depth >= MAX_DEPTH - 1) {
+            nodeRight[node] = -1;
+            return node;
+        }
+        double x0 = Double.POSITIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int i = lo; i < hi; i++) {
+            int robot = order[i];
+            x0 = Math.min(x0, x[robot]);
+            x1 = Math.max(x1, x[robot]);
+            y0 = Math.min(y0, y[robot]);
+            y1 = Math.max(y1, y[robot]);
+        }
+        int mid = (lo + hi) >>> 1;
+        select(x1 - x0 >= y1 - y0 ? x : y, lo, hi - 1, mid);
+        build(x, y, lo, mid, depth + 1);
+        nodeRight[node] = build(x, y, mid, hi, depth + 1);
+        return node;
+    }
+
+    /**
+     * Переставляет order[lo..hi] так, что на месте k стоит k-й по ключу робот,
+     * слева — не больше, справа — не меньше (выбор Хоара).
+     */
+    private void select(double[] key, int lo, int hi, int k) {
+        while (hi > lo) {
+            double pivot = key[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[order[i]] < pivot) {
+                    i++;
+                }
+                while (key[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Пересчитывает прямоугольники узлов по текущим позициям. Роботы, не прошедшие {@code filter},
+     * в прямоугольники не входят, а поддеревья без подходящих роботов при поиске пропускаются.
+     * Если число роботов в парке изменилось, дерево перестраивается.
+     */
+    public void refit(IntPredicate filter) {
+        if (builtSize != fleet.size()) {
+            rebuild();
+        }
+        double[] x = fleet.xArray();
+        double[] y = fleet.yArray();
+        // в прямом порядке потомки идут после родителя, поэтому обратный проход видит их первыми
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            int right = nodeRight[node];
+            if (right < 0) {
+                double x0 = Double.POSITIVE_INFINITY;
+                double y0 = Double.POSITIVE_INFINITY;
+                double x1 = Double.NEGATIVE_INFINITY;
+                double y1 = Double.NEGATIVE_INFINITY;
+                int count = 0;
+                for (int i = nodeLo[node]; i < nodeHi[node]; i++) {
+                    int robot = order[i];
+                    if (!filter.test(robot)) {
+                        continue;
+                    }
+                    count++;
+                    x0 = Math.min(x0, x[robot]);
+                    x1 = Math.max(x1, x[robot]);
+                    y0 = Math.min(y0, y[robot]);
+                    y1 = Math.max(y1, y[robot]);
+                }
+                minX[node] = x0;
+                minY[node] = y0;
+                maxX[node] = x1;
+                maxY[node] = y1;
+                eligible[node] = count;
+            } else {
+                int left = node + 1;
+                minX[node] = Math.min(minX[left], minX[right]);
+                minY[node] = Math.min(minY[left], minY[right]);
+                maxX[node] = Math.max(maxX[left], maxX[right]);
+                maxY[node] = Math.max(maxY[left], maxY[right]);
+                eligible[node] = eligible[left] + eligible[right];
+            }
+        }
+    }
+
+    /**
+     * Ищет ближайшего к точке робота, прошедшего последний {@link #refit(IntPredicate)} и {@code accept}.
+     *
+     * @return индекс робота или -1, если подходящих нет
+     */
+    public int nearest(double qx, double qy, IntPredicate accept) {
+        if (nodeCount == 0) {
+            return -1;
+        }
+        double[] x = fleet.xArray();
+        double[] y = fleet.yArray();
+        double best = Double.POSITIVE_INFINITY;
+        int bestRobot = -1;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (eligible[node] == 0 || boxDistance2(node, qx, qy) >= best) {
+                continue;
+            }
+            int right = nodeRight[node];
+            if (right < 0) {
+                for (int i = nodeLo[node]; i < nodeHi[node]; i++) {
+                    int robot = order[i];
+                    double dx = x[robot] - qx;
+                    double dy = y[robot] - qy;
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 < best && accept.test(robot)) {
+                        best = d2;
+                        bestRobot = robot;
+                    }
+                }
+                continue;
+            }
+            int left = node + 1;
+            // ближний потомок кладётся последним, чтобы обойти его первым
+            if (boxDistance2(left, qx, qy) <= boxDistance2(right, qx, qy)) {
+                stack[top++] = right;
+                stack[top++] = left;
+            } else {
+                stack[top++] = left;
+                stack[top++] = right;
+            }
+        }
+        return bestRobot;
+    }
+
+    /**
+     * Ищет до {@code k} ближайших подходящих роботов.
+     *
+     * @param robots    сюда пишутся индексы роботов в порядке возрастания расстояния
+     * @param distances сюда пишутся расстояния до них
+     * @return число найденных роботов
+     */
+    public int nearest(double qx, double qy, int k, IntPredicate accept, int[] robots, double[] distances) {
+        if (nodeCount == 0 || k <= 0) {
+            return 0;
+        }
+        double[] x = fleet.xArray();
+        double[] y = fleet.yArray();
+        // robots/distances[0..found) — отсортированный по возрастанию список лучших
+        int found = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            double worst = found == k ? distances[k - 1] : Double.POSITIVE_INFINITY;
+            if (eligible[node] == 0 || boxDistance2(node, qx, qy) >= worst) {
+                continue;
+            }
+            int right = nodeRight[node];
+            if (right < 0) {
+                for (int i = nodeLo[node]; i < nodeHi[node]; i++) {
+                    int robot = order[i];
+                    double dx = x[robot] - qx;
+                    double dy = y[robot] - qy;
+                    double d2 = dx * dx + dy * dy;
+                    if ((found < k || d2 < distances[k - 1]) && accept.test(robot)) {
+                        int at = found < k ? found++ : k - 1;
+                        while (at > 0 && distances[at - 1] > d2) {
+                            distances[at] = distances[at - 1];
+                            robots[at] = robots[at - 1];
+                            at--;
+                        }
+                        distances[at] = d2;
+                        robots[at] = robot;
+                    }
+                }
+                continue;
+            }
+            int left = node + 1;
+            if (boxDistance2(left, qx, qy) <= boxDistance2(right, qx, qy)) {
+                stack[top++] = right;
+                stack[top++] = left;
+            } else {
+                stack[top++] = left;
+                stack[top++] = right;
+            }
+        }
+        for (int i = 0; i < found; i++) {
+            distances[i] = Math.sqrt(distances[i]);
+        }
+        return found;
+    }
+
+    private double boxDistance2(int node, double qx, double qy) {
+        double dx = Math.max(0, Math.max(minX[node] - qx, qx - maxX[node]));
+        double dy = Math.max(0, Math.max(minY[node] - qy, qy - maxY[node]));
+        return dx * dx + dy * dy;
+    }
+
+    @Override
+    public String toString() {
+        return "RobotKdTree[robots=" + builtSize + ", nodes=" + nodeCount
+                + ", eligible=" + (nodeCount > 0 ? eligible[0] : 0) + "]";
+    }
+}
@@ -1,21 +1,28 @@
 package model;
 
-import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
-
 /**
  * Класс RobotModel представляет модель робота, хранящую его координаты и направление.
- * Использует механизм {@link PropertyChangeSupport} для уведомления подписчиков об изменениях состояния.
+ * Об изменениях состояния сообщает событиями в кольце {@link #getEvents()}: модель изменяется только
+ * в потоке симуляции, он и есть единственный производитель, а потребители читают события своими курсорами.
  */
 public class RobotModel {
-    private ExternalRobotModel externalRobotModel;
+    // Подменяется между шагами симуляции, в том числе при перезагрузке плагина
+    private volatile RobotControlLaw controlLaw = DefaultControlLaw.DEFAULT;
     private double positionX = 100;
     private double positionY = 100;
     private double direction = 0; // в радианах
     private double targetX = 150;
     private double targetY = 100;
 
-    private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
+    // Состояние робота столбцами из одного элемента для вызова закона управления; используются только в update
+    private final double[] stateX = new double[1];
+    private final double[] stateY = new double[1];
+    private final double[] stateDirection = new double[1];
+    private final double[] stateTargetX = new double[1];
+    private final double[] stateTargetY = new double[1];
+
+    private static final int EVENT_CAPACITY = 1024;
+    private final RobotEventRing events = new RobotEventRing(EVENT_CAPACITY);
 
     /**
      * Возвращает текущую позицию робота по оси X.
@@ -56,77 +63,80 @@ public class RobotModel {
      * Устанавливает обновленный функционал из jar для робота.
      */
     public void setExternalRobot(ExternalRobotModel externalRobotModel) {
-        this.externalRobotModel = externalRobotModel;
+        this.controlLaw = externalRobotModel != null ? externalRobotModel.getControlLaw() : DefaultControlLaw.DEFAULT;
+    }
+
+    /**
+     * Возвращает закон управления, которым двигается робот.
+     */
+    public RobotControlLaw getControlLaw() {
+        return controlLaw;
     }
 
     /**
-     * Устанавливает целевую позицию для робота.
-     * Уведомляет подписчиков об изменении целевых координат.
+     * Устанавливает целевую позицию для робота и публикует событие {@link RobotEvent.Type#TARGET_CHANGED}.
+     * Вызывается в потоке симуляции.
      */
     public void setTargetPosition(double x, double y) {
-        double oldX = targetX;
-        double oldY = targetY;
         targetX = x;
         targetY = y;
-        pcs.firePropertyChange("targetX", oldX, targetX);
-        pcs.firePropertyChange("targetY", oldY, targetY);
+        publish(RobotEvent.Type.TARGET_CHANGED);
     }
 
     /**
      * Обновляет состояние робота за определенный промежуток времени.
-     * Вычисляет новое положение и направление робота.
+     * Вычисляет новое положение и направление робота с помощью закона управления
+     * и, если робот сдвинулся, публикует событие {@link RobotEvent.Type#MOVED}.
      */
     public void update(double duration) {
-        double distance = Math.hypot(targetX - positionX, targetY - positionY);
-        if (distance < 0.5) return;
-
-        final double maxVelocity = externalRobotModel != null ?
-                externalRobotModel.getMaxVelocity() : 0.1;
-        final double maxAngularVelocity = externalRobotModel != null ?
-                externalRobotModel.getMaxAngularVelocity() : 0.001;
-        double angleToTarget = Math.atan2(targetY - positionY, targetX - positionX);
-        angleToTarget = normalizeAngle(angleToTarget);
-
-        double angleDiff = normalizeAngle(angleToTarget - direction);
-        double angularVelocity;
-
-        if (angleDiff > Math.PI) {
-            angularVelocity = -maxAngularVelocity;
-        } else if (angleDiff < -Math.PI) {
-            angularVelocity = maxAngularVelocity;
-        } else {
-            angularVelocity = (angleDiff > 0) ? maxAngularVelocity : -maxAngularVelocity;
+        double oldX = positionX;
+        double oldY = positionY;
+        stateX[0] = positionX;
+        stateY[0] = positionY;
+        stateDirection[0] = direction;
+        stateTargetX[0] = targetX;
+        stateTargetY[0] = targetY;
+        controlLaw.step(stateX, stateY, stateDirection, stateTargetX, stateTargetY, 0, 1, duration);
+        if (stateX[0] == oldX && stateY[0] == oldY && stateDirection[0] == direction) {
+            return;
         }
-        double newX = positionX + maxVelocity * duration * Math.cos(direction);
-        double newY = positionY + maxVelocity * duration * Math.sin(direction);
 
-        RobotsPosition oldPos = new RobotsPosition(positionX, positionY);
-
-        positionX = newX;
-        positionY = newY;
-        direction = normalizeAngle(direction + angularVelocity * duration);
-
-        RobotsPosition newPos = new RobotsPosition(positionX, positionY);
-        firePositionChange(oldPos, newPos);
+        positionX = stateX[0];
+        positionY = stateY[0];
+        direction = stateDirection[0];
+        publish(RobotEvent.Type.MOVED);
     }
 
-    private void firePositionChange(RobotsPosition oldPos, RobotsPosition newPos) {
-        pcs.firePropertyChange("position", oldPos, newPos);
+    /**
+     * Возвращает состояние робота для снимка симуляции.
+     * Вызывается между шагами симуляции.
+     */
+    public SimulationSnapshot.Robot captureState() {
+        return new SimulationSnapshot.Robot(positionX, positionY, direction, targetX, targetY);
     }
 
     /**
-     * Добавляет слушателя для отслеживания изменений в модели робота.
+     * Восстанавливает состояние робота из снимка симуляции и публикует событие {@link RobotEvent.Type#RESTORED}.
+     * Вызывается между шагами симуляции.
      */
-    public void addPropertyChangeListener(PropertyChangeListener listener) {
-        pcs.addPropertyChangeListener(listener);
+    public void restoreState(SimulationSnapshot.Robot state) {
+        positionX = state.x();
+        positionY = state.y();
+        direction = state.direction();
+        targetX = state.targetX();
+        targetY = state.targetY();
+        publish(RobotEvent.Type.RESTORED);
+    }
+
+    private void publish(RobotEvent.Type type) {
+        events.publish(type, positionX, positionY, direction, targetX, targetY);
     }
 
     /**
-     * Нормализует угол, приводя его в диапазон [0, 2π).
+     * Возвращает кольцо событий модели. Потребители создают в нём свои курсоры
+     * {@link RobotEventRing#newCursor()} и читают события в своём темпе.
      */
-    private double normalizeAngle(double angle) {
-        while (angle < 0) angle += 2 * Math.PI;
-        while (angle >= 2 * Math.PI) angle -= 2 * Math.PI;
-        return angle;
+    public RobotEventRing getEvents() {
+        return events;
     }
 }
@@ -0,0 +1,188 @@
+package model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Снимок состояния симуляции, согласованный по одному шагу: все роботы, их цели и маршрутные точки,
+ * а также ссылка на JAR-файл внешнего робота.
+ * <p>
+ * Двоичный формат (big-endian):
+ * <pre>
+ * int    сигнатура {@link #MAGIC}
+ * short  версия формата {@link #VERSION}
+ * short  флаги (зарезервировано, 0)
+ * long   момент создания, мс эпохи
+ * long   номер шага симуляции
+ * int    длина пути плагина в байтах UTF-8 или -1 | байты пути
+ * int    число роботов
+ *        для каждого: double x, y, direction, targetX, targetY | int число точек | double x, y каждой точки
+ * long   CRC32 всех предыдущих байтов
+ * </pre>
+ * Читатель отклоняет снимки с чужой сигнатурой, более новой версией или неверной контрольной суммой.
+ */
+public final class SimulationSnapshot {
+    /**
+     * Сигнатура файла снимка: {@code "RBSN"}.
+     */
+    public static final int MAGIC = 0x5242534E;
+    /**
+     * Текущая версия формата.
+     */
+    public static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = Integer.BYTES + 2 * Short.BYTES + 2 * Long.BYTES;
+    private static final int ROBOT_SIZE = 5 * Double.BYTES + Integer.BYTES;
+
+    /**
+     * Состояние одного робота.
+     *
+     * @param waypoints маршрутные точки после текущей цели парами {@code x, y}
+     */
+    public record Robot(double x, double y, double direction, double targetX, double targetY, double[] waypoints) {
+        public Robot(double x, double y, double direction, double targetX, double targetY) {
+            this(x, y, direction, targetX, targetY, new double[0]);
+        }
+    }
+
+    private final long createdMillis;
+    private final long tick;
+    private final String pluginPath;
+    private final List<Robot> robots;
+
+    /**
+     * @param createdMillis момент создания снимка
+     * @param tick          номер шага симуляции, на котором снят снимок
+     * @param pluginPath    путь к JAR-файлу внешнего робота или {@code null}
+     * @param robots        состояние роботов
+     */
+    public SimulationSnapshot(long createdMillis, long tick, String pluginPath, List<Robot> robots) {
+        this.createdMillis = createdMillis;
+        this.tick = tick;
+        this.pluginPath = pluginPath;
+        this.robots = Collections.unmodifiableList(new ArrayList<>(robots));
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public String getPluginPath() {
+        return pluginPath;
+    }
+
+    public List<Robot> getRobots() {
+        return robots;
+    }
+
+    /**
+     * Кодирует снимок в буфер, готовый к записи (позиция 0, предел — конец данных).
+     */
+    public ByteBuffer encode() {
+        byte[] plugin = pluginPath != null ? pluginPath.getBytes(StandardCharsets.UTF_8) : null;
+        int size = HEADER_SIZE + Integer.BYTES + (plugin != null ? plugin.length : 0) + Integer.BYTES + Long.BYTES;
+        for (Robot robot : robots) {
+            size += ROBOT_SIZE + robot.waypoints().length * Double.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putLong(createdMillis);
+        buffer.putLong(tick);
+        if (plugin != null) {
+            buffer.putInt(plugin.length);
+            buffer.put(plugin);
+        } else {
+            buffer.putInt(-1);
+        }
+        buffer.putInt(robots.size());
+        for (Robot robot : robots) {
+            buffer.putDouble(robot.x());
+            buffer.putDouble(robot.y());
+            buffer.putDouble(robot.direction());
+            buffer.putDouble(robot.targetX());
+            buffer.putDouble(robot.targetY());
+            buffer.putInt(robot.waypoints().length / 2);
+            for (int i = 0; i + 1 < robot.waypoints().length; i += 2) {
+                buffer.putDouble(robot.waypoints()[i]);
+                buffer.putDouble(robot.waypoints()[i + 1]);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Декодирует снимок, начиная с текущей позиции буфера. Буфер может быть отображённым в память файлом.
+     *
+     * @throws IOException если данные не являются снимком поддерживаемой версии или повреждены
+     */
+    public static SimulationSnapshot decode(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a simulation snapshot");
+            }
+            short version = buffer.getShort();
+            if (version > VERSION || version < 1) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            buffer.getShort();
+            long createdMillis = buffer.getLong();
+            long tick = buffer.getLong();
+            int pluginLength = buffer.getInt();
+            if (pluginLength < -1 || pluginLength > buffer.remaining()) {
+                throw new IOException("Corrupted snapshot: plugin path length " + pluginLength);
+            }
+            String pluginPath = null;
+            if (pluginLength >= 0) {
+                byte[] plugin = new byte[pluginLength];
+                buffer.get(plugin);
+                pluginPath = new String(plugin, StandardCharsets.UTF_8);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || (long) count * ROBOT_SIZE > buffer.remaining()) {
+                throw new IOException("Corrupted snapshot: robot count " + count);
+            }
+            List<Robot> robots = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                double x = buffer.getDouble();
+                double y = buffer.getDouble();
+                double direction = buffer.getDouble();
+                double targetX = buffer.getDouble();
+                double targetY = buffer.getDouble();
+                int points = buffer.getInt();
+                if (points < 0 || (long) points * 2 * Double.BYTES > buffer.remaining()) {
+                    throw new IOException("Corrupted snapshot: waypoint count " + points);
+                }
+                double[] waypoints = new double[points * 2];
+                buffer.asDoubleBuffer().get(waypoints);
+                buffer.position(buffer.position() + waypoints.length * Double.BYTES);
+                robots.add(new Robot(x, y, direction, targetX, targetY, waypoints));
+            }
+            int end = buffer.position();
+            long checksum = buffer.getLong();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(start).limit(end));
+            if (crc.getValue() != checksum) {
+                throw new IOException("Corrupted snapshot: checksum mismatch");
+            }
+            return new SimulationSnapshot(createdMillis, tick, pluginPath, robots);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupted snapshot: unexpected end of data", e);
+        }
+    }
+}
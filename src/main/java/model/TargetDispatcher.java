@@ -0,0 +1,241 @@
+package model;
+
+import log.LogLevel;
+import log.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Раздаёт цели роботам парка: каждую цель получает ближайший свободный робот,
+ * то есть стоящий у своей прежней цели.
+ * <p>
+ * Поиск идёт по {@link RobotKdTree}: каждый шаг симуляции {@link #onTick()} пересчитывает прямоугольники
+ * узлов по свободным роботам, а раз в {@value #REBUILD_TICKS} шагов дерево перестраивается.
+ * После того как роботы сдвинуты помимо шага, например восстановлены из снимка, вызывается {@link #invalidate()}.
+ * Пакет целей раздаётся {@link #dispatch(double[], double[], Mode)} жадно или аукционом.
+ * <p>
+ * Класс не потокобезопасен: вызывается в потоке симуляции вместе с парком.
+ */
+public class TargetDispatcher {
+    /**
+     * Способ раздачи пакета целей.
+     */
+    public enum Mode {
+        /**
+         * Жадно: пары «цель — ближайший свободный робот» закрепляются по возрастанию расстояния;
+         * цель, чей робот уже занят, ищет следующего.
+         */
+        GREEDY,
+        /**
+         * Аукцион Бертсекаса: цели торгуются за {@value #AUCTION_CANDIDATES} ближайших свободных роботов,
+         * что даёт суммарный путь в пределах ε·m от оптимального среди этих кандидатов.
+         */
+        AUCTION
+    }
+
+    private static final int REBUILD_TICKS = 100;
+    private static final int AUCTION_CANDIDATES = 16;
+    // Разрыв ставок, когда у цели единственный кандидат
+    private static final double LONE_BID = 1e9;
+
+    private final RobotFleet fleet;
+    private final RobotKdTree tree;
+    private final IntPredicate idle;
+    private int ticksSinceRebuild = REBUILD_TICKS;
+    // Роботы сдвинуты помимо шага: дерево перестраивается до следующего запроса
+    private boolean stale;
+
+    public TargetDispatcher(RobotFleet fleet) {
+        this.fleet = fleet;
+        this.tree = new RobotKdTree(fleet);
+        this.idle = fleet::isIdle;
+    }
+
+    /**
+     * Обновляет индекс по новым позициям роботов. Вызывается после каждого шага парка.
+     */
+    public void onTick() {
+        if (stale || ++ticksSinceRebuild >= REBUILD_TICKS || tree.size() != fleet.size()) {
+            tree.rebuild();
+            ticksSinceRebuild = 0;
+            stale = false;
+        }
+        tree.refit(idle);
+    }
+
+    /**
+     * Отмечает индекс устаревшим после того, как роботы парка сдвинуты или получили цели помимо шага симуляции:
+     * следующий запрос сначала перестроит дерево и пересчитает прямоугольники узлов.
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Возвращает ближайшего к точке свободного робота, не назначая ему цель.
+     *
+     * @return индекс робота или -1, если свободных нет
+     */
+    public int nearestIdle(double x, double y) {
+        ensureIndexed();
+        return tree.nearest(x, y, idle);
+    }
+
+    /**
+     * Отдаёт цель ближайшему свободному роботу.
+     *
+     * @return индекс робота или -1, если свободных нет
+     */
+    public int dispatch(double x, double y) {
+        int robot = nearestIdle(x, y);
+        if (robot >= 0) {
+            fleet.setTarget(robot, x, y);
+        }
+        return robot;
+    }
+
+    /**
+     * Раздаёт пакет целей свободным роботам; каждый робот получает не больше одной цели.
+     *
+     * @return для каждой цели индекс назначенного робота или -1, если роботов не хватило
+     */
+    public int[] dispatch(double[] targetX, double[] targetY, Mode mode) {
+        if (targetX.length != targetY.length) {
+            throw new IllegalArgumentException("Target coordinate arrays differ in length");
+        }
+        ensureIndexed();
+        long start = System.nanoTime();
+        int[] assigned = mode == Mode.AUCTION ? auction(targetX, targetY) : greedy(targetX, targetY, null);
+        int count = 0;
+        for (int target = 0; target < assigned.length; target++) {
+            if (assigned[target] >= 0) {
+                fleet.setTarget(assigned[target], targetX[target], targetY[target]);
+                count++;
+            }
+        }
+        Logger.at(LogLevel.Debug).with("mode", mode).with("targets", targetX.length).with("assigned", count)
+                .with("micros", (System.nanoTime() - start) / 1000).log("Targets dispatched");
+        return assigned;
+    }
+
+    private void ensureIndexed() {
+        if (stale || tree.size() != fleet.size()) {
+            onTick();
+        }
+    }
+
+    private record Candidate(double distance, int target, int robot) {
+    }
+
+    /**
+     * Жадная раздача. Уже назначенные цели ({@code assigned[t] >= 0}) и их роботы не трогаются.
+     */
+    private int[] greedy(double[] targetX, double[] targetY, int[] assigned) {
+        int targets = targetX.length;
+        boolean[] taken = new boolean[fleet.size()];
+        if (assigned == null) {
+            assigned = new int[targets];
+            Arrays.fill(assigned, -1);
+        } else {
+            for (int robot : assigned) {
+                if (robot >= 0) {
+                    taken[robot] = true;
+                }
+            }
+        }
+        IntPredicate free = robot -> !taken[robot] && fleet.isIdle(robot);
+        double[] x = fleet.xArray();
+        double[] y = fleet.yArray();
+        PriorityQueue<Candidate> queue = new PriorityQueue<>((a, b) -> Double.compare(a.distance, b.distance));
+        for (int target = 0; target < targets; target++) {
+            if (assigned[target] < 0) {
+                offer(queue, target, targetX[target], targetY[target], free, x, y);
+            }
+        }
+        Candidate candidate;
+        while ((candidate = queue.poll()) != null) {
+            if (taken[candidate.robot]) {
+                // робота забрала более близкая цель — ищем следующего свободного
+                offer(queue, candidate.target, targetX[candidate.target], targetY[candidate.target], free, x, y);
+                continue;
+            }
+            taken[candidate.robot] = true;
+            assigned[candidate.target] = candidate.robot;
+        }
+        return assigned;
+    }
+
+    private void offer(PriorityQueue<Candidate> queue, int target, double tx, double ty,
+                       IntPredicate free, double[] x, double[] y) {
+        int robot = tree.nearest(tx, ty, free);
+        if (robot >= 0) {
+            queue.add(new Candidate(Math.hypot(x[robot] - tx, y[robot] - ty), target, robot));
+        }
+    }
+
+    /**
+     * Аукцион: цели — покупатели, роботы — товары с ценами, ценность робота для цели — минус расстояние.
+     * Цели, не получившие робота из своих кандидатов, добираются жадно.
+     */
+    private int[] auction(double[] targetX, double[] targetY) {
+        int targets = targetX.length;
+        int[][] candidates = new int[targets][];
+        double[][] distances = new double[targets][];
+        int[] robots = new int[AUCTION_CANDIDATES];
+        double[] found = new double[AUCTION_CANDIDATES];
+        for (int target = 0; target < targets; target++) {
+            int count = tree.nearest(targetX[target], targetY[target], AUCTION_CANDIDATES, idle, robots, found);
+            candidates[target] = Arrays.copyOf(robots, count);
+            distances[target] = Arrays.copyOf(found, count);
+        }
+        double[] price = new double[fleet.size()];
+        int[] owner = new int[fleet.size()];
+        Arrays.fill(owner, -1);
+        int[] assigned = new int[targets];
+        Arrays.fill(assigned, -1);
+        // шаг ε = 1/(m+1) держит суммарный путь в пределах одного пикселя от оптимума
+        double epsilon = 1.0 / (targets + 1);
+        ArrayDeque<Integer> unassigned = new ArrayDeque<>(targets);
+        for (int target = 0; target < targets; target++) {
+            unassigned.add(target);
+        }
+        long bids = 0;
+        long maxBids = (long) targets * AUCTION_CANDIDATES * 64;
+        while (!unassigned.isEmpty() && bids < maxBids) {
+            int target = unassigned.poll();
+            int[] options = candidates[target];
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double secondValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < options.length; i++) {
+                double value = -distances[target][i] - price[options[i]];
+                if (value > bestValue) {
+                    secondValue = bestValue;
+                    bestValue = value;
+                    best = options[i];
+                } else if (value > secondValue) {
+                    secondValue = value;
+                }
+            }
+            if (best < 0) {
+                continue;
+            }
+            if (secondValue == Double.NEGATIVE_INFINITY) {
+                secondValue = bestValue - LONE_BID;
+            }
+            price[best] += bestValue - secondValue + epsilon;
+            int previous = owner[best];
+            if (previous >= 0) {
+                assigned[previous] = -1;
+                unassigned.add(previous);
+            }
+            owner[best] = target;
+            assigned[target] = best;
+            bids++;
+        }
+        return greedy(targetX, targetY, assigned);
+    }
+}